@@ -0,0 +1,59 @@
+package com.example.enrichment.service;
+
+import com.example.enrichment.dto.EnrichmentResponse;
+import com.example.enrichment.model.CustomerData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// EnrichmentService.mapToResponse: the per-customer cost of every Service-2 lookup after Redis returned
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnrichmentMappingBenchmark {
+
+    @Param({"0", "10", "100"})
+    public int activeRequests;
+
+    private EnrichmentService enrichmentService;
+    private CustomerData customer;
+
+    @Setup
+    public void setUp() {
+        // mapping touches neither Redis nor the change notifier; meters are built in the constructor
+        enrichmentService = new EnrichmentService(null, null, null, new SimpleMeterRegistry());
+
+        LocalDateTime now = LocalDateTime.of(2026, 2, 2, 10, 0);
+        List<CustomerData.ActiveRequest> requests = new ArrayList<>(activeRequests);
+        for (int i = 0; i < activeRequests; i++) {
+            requests.add(CustomerData.ActiveRequest.builder()
+                    .requestId("REQ-" + i)
+                    .category("TECHNICAL_SUPPORT")
+                    .subject("Request " + i)
+                    .createdAt(now.minusDays(1))
+                    .status(CustomerData.RequestStatus.OPEN)
+                    .build());
+        }
+        customer = CustomerData.builder()
+                .customerId("CUST-001")
+                .customerName("Benchmark Customer")
+                .customerEmail("customer@example.com")
+                .customerPhone("+70000000000")
+                .customerLevel(CustomerData.CustomerLevel.VIP)
+                .registeredAt(now.minusYears(1))
+                .activeRequests(requests)
+                .build();
+    }
+
+    @Benchmark
+    public EnrichmentResponse mapToResponse() {
+        return enrichmentService.mapToResponse(customer);
+    }
+}
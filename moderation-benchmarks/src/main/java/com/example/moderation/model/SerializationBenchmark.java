@@ -0,0 +1,156 @@
+package com.example.moderation.model;
+
+import com.example.moderation.kafka.BinaryEventCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.support.JacksonUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson (de)serialization of the Kafka and REST payloads, with the ObjectMapper
+// spring-kafka's JsonSerializer/JsonDeserializer build by default, against BinaryEventCodec
+// for the Kafka events (kafka.serialization.format=binary).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    // active requests carried in EnrichmentData (and in ModerationResultEvent that embeds it)
+    @Param({"0", "10", "100"})
+    public int activeRequests;
+
+    private ObjectWriter requestEventWriter;
+    private ObjectReader requestEventReader;
+    private ObjectWriter resultEventWriter;
+    private ObjectReader resultEventReader;
+    private ObjectWriter enrichmentWriter;
+    private ObjectReader enrichmentReader;
+
+    private CustomerRequestEvent requestEvent;
+    private ModerationResultEvent resultEvent;
+    private EnrichmentData enrichmentData;
+    private byte[] requestEventJson;
+    private byte[] resultEventJson;
+    private byte[] enrichmentJson;
+    private byte[] requestEventBinary;
+    private byte[] resultEventBinary;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = JacksonUtils.enhancedObjectMapper();
+        requestEventWriter = mapper.writerFor(CustomerRequestEvent.class);
+        requestEventReader = mapper.readerFor(CustomerRequestEvent.class);
+        resultEventWriter = mapper.writerFor(ModerationResultEvent.class);
+        resultEventReader = mapper.readerFor(ModerationResultEvent.class);
+        enrichmentWriter = mapper.writerFor(EnrichmentData.class);
+        enrichmentReader = mapper.readerFor(EnrichmentData.class);
+
+        LocalDateTime now = LocalDateTime.of(2026, 2, 2, 10, 0);
+        requestEvent = CustomerRequestEvent.builder()
+                .eventId("EVT-001")
+                .customerId("CUST-001")
+                .requestId("REQ-001")
+                .category("BILLING")
+                .subject("Invoice question")
+                .description("The last invoice contains a charge I do not recognise")
+                .priority(CustomerRequestEvent.Priority.MEDIUM)
+                .timestamp(now)
+                .build();
+
+        List<EnrichmentData.ActiveRequest> requests = new ArrayList<>(activeRequests);
+        for (int i = 0; i < activeRequests; i++) {
+            requests.add(EnrichmentData.ActiveRequest.builder()
+                    .requestId("REQ-" + i)
+                    .category("TECHNICAL_SUPPORT")
+                    .subject("Request " + i)
+                    .createdAt(now.minusDays(1))
+                    .status(EnrichmentData.RequestStatus.OPEN)
+                    .build());
+        }
+        enrichmentData = EnrichmentData.builder()
+                .customerId("CUST-001")
+                .customerName("Benchmark Customer")
+                .customerEmail("customer@example.com")
+                .customerLevel(EnrichmentData.CustomerLevel.VIP)
+                .activeRequests(requests)
+                .dataAvailable(true)
+                .build();
+
+        resultEvent = ModerationResultEvent.builder()
+                .originalEventId(requestEvent.getEventId())
+                .requestId(requestEvent.getRequestId())
+                .customerId(requestEvent.getCustomerId())
+                .category(requestEvent.getCategory())
+                .subject(requestEvent.getSubject())
+                .priority(requestEvent.getPriority())
+                .status(ModerationResultEvent.ModerationStatus.APPROVED)
+                .enrichmentData(enrichmentData)
+                .processedAt(now)
+                .build();
+
+        requestEventJson = requestEventWriter.writeValueAsBytes(requestEvent);
+        resultEventJson = resultEventWriter.writeValueAsBytes(resultEvent);
+        enrichmentJson = enrichmentWriter.writeValueAsBytes(enrichmentData);
+        requestEventBinary = BinaryEventCodec.encode(requestEvent);
+        resultEventBinary = BinaryEventCodec.encode(resultEvent);
+    }
+
+    @Benchmark
+    public byte[] serializeRequestEvent() throws IOException {
+        return requestEventWriter.writeValueAsBytes(requestEvent);
+    }
+
+    @Benchmark
+    public CustomerRequestEvent deserializeRequestEvent() throws IOException {
+        return requestEventReader.readValue(requestEventJson);
+    }
+
+    @Benchmark
+    public byte[] serializeResultEvent() throws IOException {
+        return resultEventWriter.writeValueAsBytes(resultEvent);
+    }
+
+    @Benchmark
+    public ModerationResultEvent deserializeResultEvent() throws IOException {
+        return resultEventReader.readValue(resultEventJson);
+    }
+
+    @Benchmark
+    public byte[] serializeEnrichmentData() throws IOException {
+        return enrichmentWriter.writeValueAsBytes(enrichmentData);
+    }
+
+    @Benchmark
+    public EnrichmentData deserializeEnrichmentData() throws IOException {
+        return enrichmentReader.readValue(enrichmentJson);
+    }
+
+    @Benchmark
+    public byte[] serializeRequestEventBinary() {
+        return BinaryEventCodec.encode(requestEvent);
+    }
+
+    @Benchmark
+    public Object deserializeRequestEventBinary() {
+        return BinaryEventCodec.decode(requestEventBinary);
+    }
+
+    @Benchmark
+    public byte[] serializeResultEventBinary() {
+        return BinaryEventCodec.encode(resultEvent);
+    }
+
+    @Benchmark
+    public Object deserializeResultEventBinary() {
+        return BinaryEventCodec.decode(resultEventBinary);
+    }
+}
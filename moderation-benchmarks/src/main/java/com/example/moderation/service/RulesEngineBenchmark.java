@@ -0,0 +1,100 @@
+package com.example.moderation.service;
+
+import com.example.moderation.config.ModerationRulesConfig;
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.model.EnrichmentData;
+import com.example.moderation.rules.RuleResult;
+import com.example.moderation.rules.impl.ActiveRequestRule;
+import com.example.moderation.rules.impl.DuplicateEventRule;
+import com.example.moderation.rules.impl.WorkingHoursRule;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// ModerationRulesEngine.evaluate on the consumer path (duplicate check precomputed, as after the claim).
+// ruleSet switches rules off through the config, scenario picks which rule decides,
+// activeRequests sizes the list ActiveRequestRule scans (the matching request is the last one).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesEngineBenchmark {
+
+    @Param({"ALL", "NO_WORKING_HOURS", "NO_ACTIVE_REQUESTS"})
+    public String ruleSet;
+
+    @Param({"PASS", "REJECT_WORKING_HOURS", "REJECT_ACTIVE_REQUEST"})
+    public String scenario;
+
+    @Param({"0", "10", "100"})
+    public int activeRequests;
+
+    private ModerationRulesEngine engine;
+    private CustomerRequestEvent event;
+    private EnrichmentData enrichmentData;
+    private Map<String, RuleResult> precomputed;
+
+    @Setup
+    public void setUp() {
+        ModerationRulesConfig config = new ModerationRulesConfig();
+        config.setWorkingHoursCategories(List.of("BILLING", "COMPLAINT"));
+        config.setWorkingHoursStart(LocalTime.of(9, 0));
+        config.setWorkingHoursEnd(LocalTime.of(18, 0));
+        config.setAllowMultipleActiveCategories(List.of("GENERAL_INQUIRY"));
+        config.setMaxActiveRequestsPerCategory(1);
+        config.setWorkingHoursCheckEnabled(!"NO_WORKING_HOURS".equals(ruleSet));
+        config.setActiveRequestsCheckEnabled(!"NO_ACTIVE_REQUESTS".equals(ruleSet));
+        engine = new ModerationRulesEngine(List.of(
+                new WorkingHoursRule(config), new ActiveRequestRule(config), new DuplicateEventRule(null, null)));
+        precomputed = DuplicateEventRule.precomputed(false);
+
+        LocalDateTime timestamp = "REJECT_WORKING_HOURS".equals(scenario)
+                ? LocalDateTime.of(2026, 2, 2, 22, 0) : LocalDateTime.of(2026, 2, 2, 10, 0);
+        event = CustomerRequestEvent.builder()
+                .eventId("EVT-001")
+                .customerId("CUST-001")
+                .requestId("REQ-001")
+                .category("BILLING")
+                .subject("Benchmark subject")
+                .priority(CustomerRequestEvent.Priority.MEDIUM)
+                .timestamp(timestamp)
+                .build();
+
+        List<EnrichmentData.ActiveRequest> requests = new ArrayList<>(activeRequests);
+        for (int i = 0; i < activeRequests; i++) {
+            boolean matching = "REJECT_ACTIVE_REQUEST".equals(scenario) && i == activeRequests - 1;
+            requests.add(EnrichmentData.ActiveRequest.builder()
+                    .requestId("REQ-" + i)
+                    .category(matching ? "BILLING" : "TECHNICAL_SUPPORT")
+                    .subject("Request " + i)
+                    .createdAt(timestamp.minusDays(1))
+                    .status(EnrichmentData.RequestStatus.OPEN)
+                    .build());
+        }
+        enrichmentData = EnrichmentData.builder()
+                .customerId("CUST-001")
+                .customerName("Benchmark Customer")
+                .customerLevel(EnrichmentData.CustomerLevel.REGULAR)
+                .activeRequests(requests)
+                .dataAvailable(true)
+                .build();
+    }
+
+    @Benchmark
+    public ModerationRulesEngine.ModerationEngineResult evaluate() {
+        return engine.evaluate(event, enrichmentData, precomputed);
+    }
+
+    // Local pre-check that runs before the Service-2 call
+    @Benchmark
+    public ModerationRulesEngine.ModerationEngineResult evaluateBeforeEnrichment() {
+        return engine.evaluateBeforeEnrichment(event, precomputed);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.loadtest;
+
+import com.example.moderation.kafka.ModerationEventSerializer;
+import com.example.moderation.model.CustomerRequestEvent;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Produces CustomerRequestEvents to Topic-1 on its own thread: Zipf-distributed customer keys,
+// weighted categories and a share of re-sent events (same eventId). The seed is fixed, so two runs
+// with the same options send the same stream. Send times are kept per eventId for end-to-end latency.
+class EventStreamGenerator implements Runnable {
+
+    private static final int RECENT_EVENTS = 4096;
+    private static final CustomerRequestEvent.Priority[] PRIORITIES = CustomerRequestEvent.Priority.values();
+
+    private final LoadTestOptions options;
+    private final String topic;
+    private final KafkaProducer<String, Object> producer;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final String runId = Long.toString(System.currentTimeMillis(), 36).toUpperCase();
+    private final double[] customerCdf;
+    private final String[] categories;
+    private final double[] categoryCdf;
+    private final CustomerRequestEvent[] recent = new CustomerRequestEvent[RECENT_EVENTS];
+    private final Map<String, Long> sendTimes = new ConcurrentHashMap<>();
+    private final AtomicLong produced = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private volatile boolean running = true;
+
+    EventStreamGenerator(LoadTestOptions options, String bootstrapServers, String topic, String format) {
+        this.options = options;
+        this.topic = topic;
+        // same value format as Service-1 writes (kafka.serialization.format)
+        ModerationEventSerializer serializer = new ModerationEventSerializer();
+        serializer.configure(Map.of(ModerationEventSerializer.FORMAT, format), false);
+        this.producer = new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ProducerConfig.ACKS_CONFIG, "1",
+                ProducerConfig.LINGER_MS_CONFIG, 5,
+                ProducerConfig.BATCH_SIZE_CONFIG, 64 * 1024),
+                new StringSerializer(), serializer);
+
+        // P(customer k) ~ 1 / k^skew
+        customerCdf = new double[options.customers()];
+        double total = 0;
+        for (int k = 0; k < customerCdf.length; k++) {
+            total += 1.0 / Math.pow(k + 1, options.keySkew());
+            customerCdf[k] = total;
+        }
+        for (int k = 0; k < customerCdf.length; k++) {
+            customerCdf[k] /= total;
+        }
+
+        categories = options.categoryMix().keySet().toArray(String[]::new);
+        categoryCdf = new double[categories.length];
+        double weights = options.categoryMix().values().stream().mapToDouble(Double::doubleValue).sum();
+        double cumulative = 0;
+        for (int i = 0; i < categories.length; i++) {
+            cumulative += options.categoryMix().get(categories[i]) / weights;
+            categoryCdf[i] = cumulative;
+        }
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        long sequence = 0;
+        while (running) {
+            if (options.rate() > 0) {
+                long due = (System.nanoTime() - start) * options.rate() / TimeUnit.SECONDS.toNanos(1);
+                if (sequence >= due) {
+                    LockSupport.parkNanos(100_000);
+                    continue;
+                }
+            }
+            CustomerRequestEvent event;
+            if (sequence >= RECENT_EVENTS && random.nextDouble() < options.duplicateRatio()) {
+                event = recent[random.nextInt(RECENT_EVENTS)];
+                duplicates.incrementAndGet();
+            } else {
+                event = nextEvent(sequence);
+                recent[(int) (sequence % RECENT_EVENTS)] = event;
+                sendTimes.put(event.getEventId(), System.nanoTime());
+            }
+            producer.send(new ProducerRecord<>(topic, event.getCustomerId(), event));
+            produced.incrementAndGet();
+            sequence++;
+        }
+        producer.close();
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    long produced() {
+        return produced.get();
+    }
+
+    long duplicates() {
+        return duplicates.get();
+    }
+
+    // Send time of an event seen on Topic-2, or null for an unknown / already reported one
+    Long takeSendTime(String eventId) {
+        return sendTimes.remove(eventId);
+    }
+
+    // Rejected events never reach Topic-2: forget send times that can no longer be matched
+    void expireSendTimes(long olderThanNanos) {
+        long threshold = System.nanoTime() - olderThanNanos;
+        sendTimes.values().removeIf(sentAt -> sentAt < threshold);
+    }
+
+    private CustomerRequestEvent nextEvent(long sequence) {
+        String customerId = "CUST-" + pick(customerCdf);
+        String category = categories[pick(categoryCdf)];
+        return CustomerRequestEvent.builder()
+                .eventId("EVT-" + runId + "-" + sequence)
+                .customerId(customerId)
+                .requestId("REQ-" + runId + "-" + sequence)
+                .category(category)
+                .subject("Load test " + category.toLowerCase())
+                .description("Generated by moderation-loadtest")
+                .priority(PRIORITIES[random.nextInt(PRIORITIES.length)])
+                .timestamp(LocalDateTime.of(LocalDate.now(), options.eventTime()))
+                .build();
+    }
+
+    private int pick(double[] cdf) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cdf.length - 1);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// --loadtest.* options of the harness; every other argument is passed on to Service-1 unchanged,
+// so two runs differing only in e.g. --kafka.consumer.mode=batch can be compared.
+public record LoadTestOptions(
+        Duration duration,
+        Duration warmup,
+        Duration reportInterval,
+        // events per second, 0 = as fast as the producer goes
+        int rate,
+        int partitions,
+        int customers,
+        // Zipf exponent of the customer key distribution: 0 = uniform, ~1 = a few hot customers
+        double keySkew,
+        // share of events that re-send an already produced eventId
+        double duplicateRatio,
+        Map<String, Double> categoryMix,
+        // event timestamp (time of day); inside working hours by default so the result does not depend on the clock
+        LocalTime eventTime,
+        // open requests per customer known to the stub Service-2, in random categories
+        int activeRequests,
+        Duration stubLatency,
+        // stub Service-2 instances, balanced by Service-1 (enrichment.service.instances)
+        int stubInstances,
+        // share of stub Service-2 calls that take stubSlowLatency instead (GC pause, Redis hiccup)
+        double stubSlowRatio,
+        Duration stubSlowLatency,
+        // memory - in-process mongo-java-server; embedded - real mongod (downloaded on first run);
+        // otherwise the URI of an external MongoDB, e.g. mongodb://localhost:27017
+        String mongo,
+        String reportCsv,
+        List<String> serviceArgs) {
+
+    private static final String PREFIX = "--loadtest.";
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        List<String> serviceArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(PREFIX)) {
+                int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Expected " + arg + "=<value>");
+                }
+                options.put(arg.substring(PREFIX.length(), separator), arg.substring(separator + 1));
+            } else {
+                serviceArgs.add(arg);
+            }
+        }
+
+        LoadTestOptions parsed = new LoadTestOptions(
+                DurationStyle.detectAndParse(take(options, "duration", "60s")),
+                DurationStyle.detectAndParse(take(options, "warmup", "10s")),
+                DurationStyle.detectAndParse(take(options, "report-interval", "5s")),
+                Integer.parseInt(take(options, "rate", "0")),
+                Integer.parseInt(take(options, "partitions", "3")),
+                Integer.parseInt(take(options, "customers", "10000")),
+                Double.parseDouble(take(options, "key-skew", "0")),
+                Double.parseDouble(take(options, "duplicate-ratio", "0.01")),
+                categoryMix(take(options, "category-mix",
+                        "BILLING:0.3,COMPLAINT:0.1,TECHNICAL_SUPPORT:0.4,GENERAL_INQUIRY:0.2")),
+                LocalTime.parse(take(options, "event-time", "12:00")),
+                Integer.parseInt(take(options, "active-requests", "2")),
+                DurationStyle.detectAndParse(take(options, "stub-latency", "2ms")),
+                Integer.parseInt(take(options, "stub-instances", "1")),
+                Double.parseDouble(take(options, "stub-slow-ratio", "0")),
+                DurationStyle.detectAndParse(take(options, "stub-slow-latency", "500ms")),
+                take(options, "mongo", "memory"),
+                take(options, "report-csv", null),
+                List.copyOf(serviceArgs));
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + options.keySet());
+        }
+        if (parsed.duplicateRatio < 0 || parsed.duplicateRatio >= 1) {
+            throw new IllegalArgumentException("duplicate-ratio must be in [0, 1)");
+        }
+        return parsed;
+    }
+
+    private static String take(Map<String, String> options, String name, String defaultValue) {
+        String value = options.remove(name);
+        return value != null ? value : defaultValue;
+    }
+
+    // "BILLING:0.3,COMPLAINT:0.1" -> weights, normalised by the generator
+    private static Map<String, Double> categoryMix(String value) {
+        Map<String, Double> mix = new LinkedHashMap<>();
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            mix.put(parts[0], parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0);
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.loadtest;
+
+import com.example.moderation.ModerationServiceApplication;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import de.flapdoodle.embed.mongo.commands.ServerAddress;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// End-to-end throughput harness: Service-1 in this JVM against an embedded Kafka broker, an embedded
+// MongoDB stand-in (see LoadTestOptions.mongo) and stub Service-2 instances, fed by EventStreamGenerator.
+// Example: java -jar target/loadtest.jar --loadtest.duration=2m --loadtest.key-skew=1.1 --kafka.consumer.mode=batch
+public class LoadTestRunner {
+
+    private static final String INPUT_TOPIC = "customer-requests-topic";
+    private static final String OUTPUT_TOPIC = "moderation-results-topic";
+    private static final String CUSTOMER_CHANGES_TOPIC = "customer-changes-topic";
+    private static final long DRAIN_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        EmbeddedKafkaBroker broker = new EmbeddedKafkaKraftBroker(1, options.partitions(),
+                INPUT_TOPIC, OUTPUT_TOPIC, CUSTOMER_CHANGES_TOPIC);
+        // single broker: the transaction state log (kafka.consumer.mode=transactional) cannot have 3 replicas
+        broker.brokerProperties(Map.of(
+                "transaction.state.log.replication.factor", "1",
+                "transaction.state.log.min.isr", "1"));
+        broker.afterPropertiesSet();
+        MongoServer memoryMongo = null;
+        TransitionWalker.ReachedState<RunningMongodProcess> mongod = null;
+        List<StubEnrichmentServer> stubs = new ArrayList<>();
+        try {
+            for (int i = 0; i < options.stubInstances(); i++) {
+                stubs.add(new StubEnrichmentServer(List.copyOf(options.categoryMix().keySet()), options.activeRequests(),
+                        options.stubLatency(), options.stubSlowRatio(), options.stubSlowLatency()));
+            }
+            String mongoUri;
+            if ("memory".equals(options.mongo())) {
+                memoryMongo = new MongoServer(new MemoryBackend());
+                InetSocketAddress address = memoryMongo.bind();
+                mongoUri = "mongodb://" + address.getHostString() + ":" + address.getPort();
+            } else if ("embedded".equals(options.mongo())) {
+                mongod = Mongod.instance().start(Version.Main.V7_0);
+                ServerAddress address = mongod.current().getServerAddress();
+                mongoUri = "mongodb://" + address.getHost() + ":" + address.getPort();
+            } else {
+                mongoUri = options.mongo();
+            }
+            run(options, broker.getBrokersAsString(), mongoUri, stubs);
+        } finally {
+            stubs.forEach(StubEnrichmentServer::close);
+            if (mongod != null) {
+                mongod.close();
+            }
+            if (memoryMongo != null) {
+                memoryMongo.shutdownNow();
+            }
+            broker.destroy();
+        }
+        // stand-in event loops do not all stop with their owners
+        System.exit(0);
+    }
+
+    private static void run(LoadTestOptions options, String bootstrapServers, String mongoUri,
+                            List<StubEnrichmentServer> stubs) throws Exception {
+        String stubUrls = stubs.stream().map(StubEnrichmentServer::url).collect(Collectors.joining(","));
+        // system properties outrank application.yaml; the forwarded command line outranks them
+        Map.ofEntries(
+                Map.entry("spring.kafka.bootstrap-servers", bootstrapServers),
+                Map.entry("spring.data.mongodb.uri", mongoUri),
+                Map.entry("spring.data.mongodb.database", "moderation_loadtest"),
+                Map.entry("kafka.topics.input", INPUT_TOPIC),
+                Map.entry("kafka.topics.output", OUTPUT_TOPIC),
+                Map.entry("kafka.topics.customer-changes", CUSTOMER_CHANGES_TOPIC),
+                Map.entry("enrichment.service.url", stubs.get(0).url()),
+                Map.entry("enrichment.service.instances", stubUrls),
+                Map.entry("server.port", "0"),
+                Map.entry("logging.level.root", "WARN"),
+                Map.entry("logging.level.com.example.moderation", "WARN")
+        ).forEach(System::setProperty);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ModerationServiceApplication.class)
+                .run(options.serviceArgs().toArray(String[]::new));
+             Admin admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers))) {
+            String groupId = context.getEnvironment().getRequiredProperty("spring.kafka.consumer.group-id");
+            System.out.printf("%nService-1 started (consumer mode %s), stub Service-2 at %s, MongoDB at %s%n",
+                    context.getEnvironment().getProperty("kafka.consumer.mode", "record"), stubUrls, mongoUri);
+            System.out.printf("warm-up %ds, measurement %ds, rate %s, %d customers, key skew %.2f, duplicates %.1f%%, categories %s%n%n",
+                    options.warmup().toSeconds(), options.duration().toSeconds(),
+                    options.rate() > 0 ? options.rate() + "/s" : "unlimited", options.customers(), options.keySkew(),
+                    options.duplicateRatio() * 100, options.categoryMix());
+
+            EventStreamGenerator generator = new EventStreamGenerator(options, bootstrapServers, INPUT_TOPIC,
+                    context.getEnvironment().getProperty("kafka.serialization.format", "json"));
+            ResultLatencyListener latency = new ResultLatencyListener(bootstrapServers, OUTPUT_TOPIC, generator);
+            Thread listenerThread = new Thread(latency, "loadtest-results");
+            Thread generatorThread = new Thread(generator, "loadtest-producer");
+
+            try (ThroughputReporter reporter = new ThroughputReporter(context.getBean(MeterRegistry.class), admin,
+                    groupId, INPUT_TOPIC, generator, latency, options.reportCsv())) {
+                listenerThread.start();
+                generatorThread.start();
+
+                long intervalMillis = options.reportInterval().toMillis();
+                long warmupMillis = options.warmup().toMillis();
+                long endMillis = warmupMillis + options.duration().toMillis();
+                long start = System.currentTimeMillis();
+                boolean measuring = warmupMillis == 0;
+                if (measuring) {
+                    reporter.startMeasurement();
+                }
+                for (long next = intervalMillis; next <= endMillis; next += intervalMillis) {
+                    Thread.sleep(Math.max(0, start + next - System.currentTimeMillis()));
+                    reporter.sample(next / 1000);
+                    generator.expireSendTimes(TimeUnit.MINUTES.toNanos(1));
+                    if (!measuring && next >= warmupMillis) {
+                        reporter.startMeasurement();
+                        measuring = true;
+                    }
+                }
+
+                generator.stop();
+                generatorThread.join();
+                long drainStart = System.currentTimeMillis();
+                long drainMillis = -1;
+                while (System.currentTimeMillis() - drainStart < DRAIN_TIMEOUT_MILLIS) {
+                    if (reporter.lag() == 0) {
+                        drainMillis = System.currentTimeMillis() - drainStart;
+                        break;
+                    }
+                    Thread.sleep(100);
+                }
+                latency.stop();
+                listenerThread.join();
+                reporter.printSummary(drainMillis, stubs.stream().map(StubEnrichmentServer::calls).toList());
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.loadtest;
+
+import com.example.moderation.kafka.ModerationEventDeserializer;
+import com.example.moderation.model.ModerationResultEvent;
+import org.HdrHistogram.Recorder;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Reads Topic-2 from its current end and records produce -> result latency of every approved event
+// the generator sent (rejected events have no result to match). Reads JSON and binary results alike.
+class ResultLatencyListener implements Runnable {
+
+    private final KafkaConsumer<String, Object> consumer;
+    private final EventStreamGenerator generator;
+    // microseconds, up to one minute at 3 significant digits
+    private final Recorder recorder = new Recorder(TimeUnit.MINUTES.toMicros(1), 3);
+    private volatile boolean running = true;
+
+    ResultLatencyListener(String bootstrapServers, String topic, EventStreamGenerator generator) {
+        this.generator = generator;
+        ModerationEventDeserializer deserializer = new ModerationEventDeserializer();
+        deserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "com.example.moderation.model"), false);
+        this.consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false,
+                // transactional mode: latency is measured up to commit, when downstream readers see the result
+                ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed"),
+                new StringDeserializer(), deserializer);
+        List<TopicPartition> partitions = consumer.partitionsFor(topic).stream()
+                .map(info -> new TopicPartition(topic, info.partition()))
+                .toList();
+        consumer.assign(partitions);
+        consumer.seekToEnd(partitions);
+        partitions.forEach(consumer::position);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                for (ConsumerRecord<String, Object> record : consumer.poll(Duration.ofMillis(100))) {
+                    Long sentAt = record.value() instanceof ModerationResultEvent result
+                            ? generator.takeSendTime(result.getOriginalEventId()) : null;
+                    if (sentAt != null) {
+                        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt);
+                        recorder.recordValue(Math.min(micros, TimeUnit.MINUTES.toMicros(1)));
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            // stop() during poll
+        } finally {
+            consumer.close();
+        }
+    }
+
+    void stop() {
+        running = false;
+        consumer.wakeup();
+    }
+
+    Recorder recorder() {
+        return recorder;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.loadtest;
+
+import com.example.moderation.model.EnrichmentData;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.kafka.support.JacksonUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stand-in for Service-2 on the JDK HTTP server: the single and bulk lookup endpoints Service-1 calls,
+// a fixed latency per call (a share of calls is slow, if configured) and a deterministic profile per customer (same customer -> same open requests).
+class StubEnrichmentServer implements AutoCloseable {
+
+    private static final String CUSTOMER_PATH = "/api/v1/enrichment/customer/";
+    private static final String BATCH_PATH = "/api/v1/enrichment/customers:batch";
+    private static final String HEALTH_PATH = "/api/v1/enrichment/health";
+
+    private final ObjectMapper objectMapper = JacksonUtils.enhancedObjectMapper();
+    private final Map<String, EnrichmentData> profiles = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final List<String> categories;
+    private final int activeRequests;
+    private final long latencyMillis;
+    private final double slowRatio;
+    private final long slowLatencyMillis;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpServer server;
+
+    StubEnrichmentServer(List<String> categories, int activeRequests, Duration latency,
+                         double slowRatio, Duration slowLatency) throws IOException {
+        this.categories = categories;
+        this.activeRequests = activeRequests;
+        this.latencyMillis = latency.toMillis();
+        this.slowRatio = slowRatio;
+        this.slowLatencyMillis = slowLatency.toMillis();
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.createContext(CUSTOMER_PATH, this::customer);
+        server.createContext(BATCH_PATH, this::batch);
+        server.createContext(HEALTH_PATH, this::health);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    long calls() {
+        return calls.get();
+    }
+
+    private void customer(HttpExchange exchange) throws IOException {
+        String customerId = exchange.getRequestURI().getPath().substring(CUSTOMER_PATH.length());
+        respond(exchange, objectMapper.writeValueAsBytes(profile(customerId)));
+    }
+
+    private void batch(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        List<EnrichmentData> response = new ArrayList<>();
+        request.path("customerIds").forEach(id -> response.add(profile(id.asText())));
+        respond(exchange, objectMapper.writeValueAsBytes(response));
+    }
+
+    // Health checks of Service-1's balancer: not delayed, not counted
+    private void health(HttpExchange exchange) throws IOException {
+        byte[] body = "{\"status\":\"UP\"}".getBytes();
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) throws IOException {
+        calls.incrementAndGet();
+        try {
+            long millis = slowRatio > 0 && ThreadLocalRandom.current().nextDouble() < slowRatio
+                    ? slowLatencyMillis : latencyMillis;
+            if (millis > 0) {
+                Thread.sleep(millis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private EnrichmentData profile(String customerId) {
+        return profiles.computeIfAbsent(customerId, id -> {
+            Random random = new Random(id.hashCode());
+            LocalDateTime createdAt = LocalDateTime.now().minusDays(1);
+            List<EnrichmentData.ActiveRequest> requests = new ArrayList<>(activeRequests);
+            for (int i = 0; i < activeRequests; i++) {
+                requests.add(EnrichmentData.ActiveRequest.builder()
+                        .requestId(id + "-OPEN-" + i)
+                        .category(categories.get(random.nextInt(categories.size())))
+                        .subject("Open request " + i)
+                        .createdAt(createdAt)
+                        .status(EnrichmentData.RequestStatus.OPEN)
+                        .build());
+            }
+            EnrichmentData.CustomerLevel[] levels = EnrichmentData.CustomerLevel.values();
+            return EnrichmentData.builder()
+                    .customerId(id)
+                    .customerName("Customer " + id)
+                    .customerEmail(id.toLowerCase() + "@example.com")
+                    .customerLevel(levels[random.nextInt(levels.length)])
+                    .activeRequests(requests)
+                    .dataAvailable(true)
+                    .build();
+        });
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
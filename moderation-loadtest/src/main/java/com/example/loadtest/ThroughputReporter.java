@@ -0,0 +1,198 @@
+package com.example.loadtest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// One line per report interval: produced and processed events/s, consumer lag of Service-1's group,
+// end-to-end latency of the interval and the service's own consume p99 (moderation.consume).
+// The summary covers the measurement window only (after warm-up).
+class ThroughputReporter implements AutoCloseable {
+
+    private static final double MILLIS = 1000.0;
+
+    private final MeterRegistry serviceRegistry;
+    private final Admin admin;
+    private final String groupId;
+    private final String inputTopic;
+    private final EventStreamGenerator generator;
+    private final ResultLatencyListener latency;
+    private final PrintWriter csv;
+
+    private final Histogram window = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+    private Histogram interval;
+    private long lastNanos = System.nanoTime();
+    private long lastProduced;
+    private long lastProcessed;
+    private boolean measuring;
+    private long windowStartNanos;
+    private long windowStartProduced;
+    private long windowStartProcessed;
+    private long peakLag;
+
+    ThroughputReporter(MeterRegistry serviceRegistry, Admin admin, String groupId, String inputTopic,
+                       EventStreamGenerator generator, ResultLatencyListener latency, String csvPath) throws IOException {
+        this.serviceRegistry = serviceRegistry;
+        this.admin = admin;
+        this.groupId = groupId;
+        this.inputTopic = inputTopic;
+        this.generator = generator;
+        this.latency = latency;
+        this.csv = csvPath != null ? new PrintWriter(Files.newBufferedWriter(Path.of(csvPath)), true) : null;
+        if (csv != null) {
+            csv.println("elapsed_s,phase,produced_per_s,processed_per_s,lag,e2e_p50_ms,e2e_p95_ms,e2e_p99_ms,e2e_max_ms,consume_p99_ms");
+        }
+    }
+
+    void startMeasurement() {
+        measuring = true;
+        windowStartNanos = System.nanoTime();
+        windowStartProduced = generator.produced();
+        windowStartProcessed = processed();
+        peakLag = 0;
+        window.reset();
+    }
+
+    void sample(long elapsedSeconds) {
+        long now = System.nanoTime();
+        double seconds = (now - lastNanos) / 1e9;
+        long produced = generator.produced();
+        long processed = processed();
+        long lag = lag();
+        interval = latency.recorder().getIntervalHistogram(interval);
+        if (measuring) {
+            window.add(interval);
+            peakLag = Math.max(peakLag, lag);
+        }
+
+        double producedRate = (produced - lastProduced) / seconds;
+        double processedRate = (processed - lastProcessed) / seconds;
+        double consumeP99 = consumeP99Millis();
+        System.out.printf("[%4ds %-7s] produced %8.0f/s  processed %8.0f/s  lag %7d  e2e p50 %7.2f  p95 %7.2f  p99 %7.2f  max %7.2f ms  consume p99 %6.2f ms%n",
+                elapsedSeconds, measuring ? "measure" : "warmup", producedRate, processedRate, lag,
+                millis(interval, 50), millis(interval, 95), millis(interval, 99), interval.getMaxValue() / MILLIS, consumeP99);
+        if (csv != null) {
+            csv.printf("%d,%s,%.0f,%.0f,%d,%.2f,%.2f,%.2f,%.2f,%.2f%n",
+                    elapsedSeconds, measuring ? "measure" : "warmup", producedRate, processedRate, lag,
+                    millis(interval, 50), millis(interval, 95), millis(interval, 99), interval.getMaxValue() / MILLIS, consumeP99);
+        }
+
+        lastNanos = now;
+        lastProduced = produced;
+        lastProcessed = processed;
+    }
+
+    // stubCalls: calls per stub Service-2 instance
+    void printSummary(long drainMillis, List<Long> stubCalls) {
+        double seconds = (lastNanos - windowStartNanos) / 1e9;
+        long produced = lastProduced - windowStartProduced;
+        long processed = lastProcessed - windowStartProcessed;
+        System.out.println();
+        System.out.println("=== Load test summary (measurement window " + Math.round(seconds) + "s) ===");
+        System.out.printf("produced            %d events, %.0f events/s (duplicates re-sent: %d in total)%n",
+                produced, produced / seconds, generator.duplicates());
+        System.out.printf("processed           %d events, %.0f events/s sustained%n", processed, processed / seconds);
+        System.out.printf("end-to-end latency  p50 %.2f  p90 %.2f  p95 %.2f  p99 %.2f  p99.9 %.2f  max %.2f ms (%d approved events)%n",
+                millis(window, 50), millis(window, 90), millis(window, 95), millis(window, 99), millis(window, 99.9),
+                window.getMaxValue() / MILLIS, window.getTotalCount());
+        System.out.printf("consumer lag        peak %d, drained %s%n", peakLag,
+                drainMillis >= 0 ? "in " + drainMillis + " ms after the producer stopped" : "NOT within the drain timeout");
+        System.out.printf("Topic-2 producer    batch avg %.0f B, compression ratio %.2f, request latency avg %.2f ms, %.0f records/request%n",
+                producerMetric("kafka.producer.batch.size.avg"), producerMetric("kafka.producer.compression.rate.avg"),
+                producerMetric("kafka.producer.request.latency.avg"), producerMetric("kafka.producer.records.per.request.avg"));
+        System.out.printf("stub Service-2      %d calls in total%s%n", stubCalls.stream().mapToLong(Long::longValue).sum(),
+                stubCalls.size() > 1 ? ", per instance " + stubCalls : "");
+        Map<String, Long> hedges = countByTag("moderation.enrichment.hedges", "outcome");
+        if (!hedges.isEmpty()) {
+            System.out.printf("hedged lookups      %s%n", hedges);
+        }
+        System.out.println("outcomes (whole run, warm-up included):");
+        outcomes().forEach((status, count) -> System.out.printf("  %-18s %d%n", status, count));
+    }
+
+    // Events still to be processed by Service-1's group: end offsets minus committed offsets of Topic-1
+    long lag() {
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(groupId)
+                    .partitionsToOffsetAndMetadata().get();
+            Map<TopicPartition, OffsetSpec> latest = admin.describeTopics(List.of(inputTopic)).allTopicNames().get()
+                    .get(inputTopic).partitions().stream()
+                    .collect(Collectors.toMap(info -> new TopicPartition(inputTopic, info.partition()), info -> OffsetSpec.latest()));
+            return admin.listOffsets(latest).all().get().entrySet().stream()
+                    .mapToLong(end -> {
+                        OffsetAndMetadata offset = committed.get(end.getKey());
+                        return end.getValue().offset() - (offset != null ? offset.offset() : 0);
+                    })
+                    .sum();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } catch (ExecutionException e) {
+            return -1;
+        }
+    }
+
+    private long processed() {
+        return (long) serviceRegistry.find("moderation.events").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private Map<String, Long> outcomes() {
+        return countByTag("moderation.events", "status");
+    }
+
+    private Map<String, Long> countByTag(String meter, String tag) {
+        return serviceRegistry.find(meter).counters().stream()
+                .collect(Collectors.groupingBy(counter -> counter.getId().getTag(tag), TreeMap::new,
+                        Collectors.summingLong(counter -> (long) counter.count())));
+    }
+
+    // Service-1's own producer as reported by the Kafka client (last 30s window); NaN before the first send
+    private double producerMetric(String name) {
+        return serviceRegistry.find(name).gauges().stream()
+                .mapToDouble(Gauge::value)
+                .filter(value -> !Double.isNaN(value))
+                .max()
+                .orElse(Double.NaN);
+    }
+
+    private double consumeP99Millis() {
+        return serviceRegistry.find("moderation.consume").timers().stream()
+                .map(Timer::takeSnapshot)
+                .flatMap(snapshot -> Arrays.stream(snapshot.percentileValues()))
+                .filter(value -> value.percentile() == 0.99)
+                .mapToDouble(value -> value.value(TimeUnit.MILLISECONDS))
+                .max()
+                .orElse(Double.NaN);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MILLIS;
+    }
+
+    @Override
+    public void close() {
+        if (csv != null) {
+            csv.close();
+        }
+    }
+}
@@ -2,11 +2,9 @@ package com.example.moderation;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.annotation.EnableAsync;
 
 @SpringBootApplication
-@EnableRetry
 @EnableAsync
 public class ModerationServiceApplication {
 
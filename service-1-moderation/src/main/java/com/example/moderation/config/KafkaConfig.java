@@ -1,22 +1,41 @@
 package com.example.moderation.config;
 
+import com.example.moderation.exception.GlobalExceptionHandler;
+import com.example.moderation.kafka.BatchAfterRollbackProcessor;
+import com.example.moderation.kafka.DeadLetterReplayer;
+import com.example.moderation.kafka.ModerationEventDeserializer;
+import com.example.moderation.kafka.ModerationEventSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
 import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
-import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.FixedBackOff;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiFunction;
 
 @Configuration
 public class KafkaConfig {
@@ -32,6 +51,54 @@ public class KafkaConfig {
     
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
+    
+    @Value("${kafka.consumer.mode:record}")
+    private String consumerMode;
+    
+    @Value("${kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+    
+    @Value("${moderation.persistence.write-behind.enabled:false}")
+    private boolean writeBehindEnabled;
+    
+    @Value("${kafka.producer.compression-type:none}")
+    private String compressionType;
+    
+    @Value("${kafka.producer.batch-size:16384}")
+    private int batchSize;
+    
+    @Value("${kafka.producer.linger:0ms}")
+    private Duration linger;
+    
+    @Value("${kafka.producer.max-in-flight:5}")
+    private int maxInFlight;
+    
+    @Value("${kafka.producer.buffer-memory:33554432}")
+    private long bufferMemory;
+    
+    @Value("${kafka.transaction.id-prefix:moderation-tx-${random.uuid}-}")
+    private String transactionIdPrefix;
+    
+    @Value("${kafka.serialization.format:json}")
+    private String serializationFormat;
+    
+    @Value("${kafka.serialization.dual-read:true}")
+    private boolean dualRead;
+    
+    @Value("${kafka.retry.attempts:4}")
+    private int retryAttempts;
+    
+    @Value("${kafka.retry.delay-ms:5000}")
+    private long retryDelayMs;
+    
+    @Value("${kafka.retry.partitions:3}")
+    private int retryPartitions;
+    
+    @Value("${moderation.idempotency.lease-timeout:5m}")
+    private Duration leaseTimeout;
+    
+    @Value("${moderation.idempotency.in-progress-retry:5s}")
+    private Duration inProgressRetry;
 
     @Bean
     public NewTopic inputTopic() {
@@ -43,43 +110,176 @@ public class KafkaConfig {
         return TopicBuilder.name(outputTopic).partitions(3).replicas(1).build();
     }
 
+    // record mode gets its DLT from @RetryableTopic; the other modes publish to the same topic
+    // through deadLetterRecoverer
+    @Bean
+    @ConditionalOnExpression("'${kafka.consumer.mode:record}'.toLowerCase() matches 'batch|parallel|reactive|transactional'")
+    public NewTopic deadLetterTopic() {
+        return TopicBuilder.name(inputTopic + DeadLetterReplayer.DLT_SUFFIX).partitions(retryPartitions).replicas(1).build();
+    }
+
+    // Kafka client metrics (kafka.producer.*, kafka.consumer.*) go to Micrometer, among them
+    // kafka.producer.record.send.rate, batch.size.avg, compression.rate.avg, request.latency.avg
+    // and consumer lag: kafka.consumer.fetch.manager.records.lag(.max)
     @Bean
-    public ProducerFactory<String, Object> producerFactory() {
+    public ProducerFactory<String, Object> producerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> config = new HashMap<>();
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ModerationEventSerializer.class);
+        config.put(ModerationEventSerializer.FORMAT, serializationFormat);
         config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         config.put(ProducerConfig.ACKS_CONFIG, "all");
         config.put(ProducerConfig.RETRIES_CONFIG, 3);
-        return new DefaultKafkaProducerFactory<>(config);
+        // batching: records to the same partition within linger share one compressed request;
+        // idempotence keeps per-partition order with up to 5 requests in flight
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, (int) linger.toMillis());
+        config.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, maxInFlight);
+        config.put(ProducerConfig.BUFFER_MEMORY_CONFIG, bufferMemory);
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(config);
+        // transactional mode: Topic-2 sends of a poll join the transaction that commits its offsets
+        if (isTransactional()) factory.setTransactionIdPrefix(transactionIdPrefix);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
     
     @Bean
-    public KafkaTemplate<String, Object> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public KafkaTemplate<String, Object> kafkaTemplate(ProducerFactory<String, Object> producerFactory) {
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(producerFactory);
+        // sends outside a listener transaction (POST /test-event) go through a non-transactional producer
+        template.setAllowNonTransactional(true);
+        return template;
     }
 
     @Bean
-    public ConsumerFactory<String, Object> consumerFactory() {
+    public ConsumerFactory<String, Object> consumerFactory(MeterRegistry meterRegistry) {
         Map<String, Object> config = new HashMap<>();
         config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ModerationEventDeserializer.class);
+        config.put(ModerationEventDeserializer.DUAL_READ, dualRead);
         config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        // records of aborted transactions never reach the listeners
+        if (isTransactional()) config.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         config.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.moderation.model,com.example.moderation.dto");
         config.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.example.moderation.model.CustomerRequestEvent");
-        return new DefaultKafkaConsumerFactory<>(config);
+        DefaultKafkaConsumerFactory<String, Object> factory = new DefaultKafkaConsumerFactory<>(config);
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
     }
 
+    // Near-cache invalidations from Service-2: key = customerId, value = change type.
+    // Every instance must see every change, so each one reads from the tail without committing offsets.
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, String> customerChangesListenerContainerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(config));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    // Records given up on by batch, parallel, reactive and transactional modes, on the same DLT partition as the record-mode retry topics use.
+    // accept() waits for the broker and throws if the send failed
+    @Bean
+    public DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<String, Object> kafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, e) -> new TopicPartition(record.topic() + DeadLetterReplayer.DLT_SUFFIX, record.partition()));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory, DeadLetterPublishingRecoverer deadLetterRecoverer,
+            Environment environment) {
         ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
-        factory.setConsumerFactory(consumerFactory());
+        factory.setConsumerFactory(consumerFactory);
+        // batch mode: the whole poll is handed to the listener and committed with a single ack;
+        // a failed poll is retried (from the failed record on BatchListenerFailedException, else as a whole)
+        // and the records still failing after the retries go to the DLT
+        boolean batch = "batch".equalsIgnoreCase(consumerMode);
+        factory.setBatchListener(batch);
+        if (batch) factory.setCommonErrorHandler(deadLetterErrorHandler(deadLetterRecoverer));
+        // reactive and parallel modes, and record mode with write-behind persistence, ack from completion
+        // callbacks: commits follow the lowest contiguous acked offset, and the consumer pauses until
+        // the previous poll is fully acked, which bounds events in flight
+        factory.getContainerProperties().setAsyncAcks("reactive".equalsIgnoreCase(consumerMode)
+                || "parallel".equalsIgnoreCase(consumerMode)
+                || "record".equalsIgnoreCase(consumerMode) && writeBehindEnabled);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
-        factory.setConcurrency(3);
+        configureListenerContainers(factory, environment);
+        return factory;
+    }
+
+    // Topic-1 in transactional mode: the container begins a transaction per poll, the listener's Topic-2
+    // sends join it and the poll's offsets are sent to it before commit; an exception aborts the lot.
+    // The aborted poll is replayed after a back-off; a record that keeps failing it goes to the DLT.
+    // A separate factory, because the Topic-2 logger keeps manual acks outside transactions.
+    @Bean
+    @ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "transactional")
+    public ConcurrentKafkaListenerContainerFactory<String, Object> transactionalListenerContainerFactory(
+            ConsumerFactory<String, Object> consumerFactory, ProducerFactory<String, Object> producerFactory,
+            KafkaTemplate<String, Object> kafkaTemplate, DeadLetterPublishingRecoverer deadLetterRecoverer,
+            Environment environment) {
+        ConcurrentKafkaListenerContainerFactory<String, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setTransactionManager(new KafkaTransactionManager<>(producerFactory));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        BatchAfterRollbackProcessor afterRollbackProcessor = deadLetterAfterRollbackProcessor(deadLetterRecoverer, kafkaTemplate);
+        factory.setAfterRollbackProcessor(afterRollbackProcessor);
+        // a record dead-lettered in the middle of a poll is left out of the poll's replay
+        factory.setRecordFilterStrategy(afterRollbackProcessor);
+        configureListenerContainers(factory, environment);
         return factory;
     }
+
+    // Same DLT and delay as the record-mode retry topics, but retried in place: batch mode has no retry topics.
+    // An event claimed by another consumer is retried until that claim is completed or its lease runs out
+    private DefaultErrorHandler deadLetterErrorHandler(DeadLetterPublishingRecoverer recoverer) {
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(recoverer, new FixedBackOff(retryDelayMs, retryAttempts - 1));
+        errorHandler.setBackOffFunction(inProgressBackOff());
+        return errorHandler;
+    }
+
+    // The same retries for transactional mode, counted on the record the listener names; the DLT send and
+    // the recovered offset commit in a transaction of their own
+    private BatchAfterRollbackProcessor deadLetterAfterRollbackProcessor(DeadLetterPublishingRecoverer recoverer,
+                                                                         KafkaTemplate<String, Object> kafkaTemplate) {
+        BatchAfterRollbackProcessor processor = new BatchAfterRollbackProcessor(recoverer,
+                new FixedBackOff(retryDelayMs, retryAttempts - 1), kafkaTemplate);
+        processor.setBackOffFunction(inProgressBackOff());
+        return processor;
+    }
+
+    private BiFunction<ConsumerRecord<?, ?>, Exception, BackOff> inProgressBackOff() {
+        FixedBackOff untilLeaseExpires = new FixedBackOff(inProgressRetry.toMillis(),
+                leaseTimeout.toMillis() / inProgressRetry.toMillis() + 1);
+        return (record, e) -> e instanceof GlobalExceptionHandler.EventInProgressException ? untilLeaseExpires : null;
+    }
+
+    private boolean isTransactional() {
+        return "transactional".equalsIgnoreCase(consumerMode);
+    }
+
+    private static void configureListenerContainers(ConcurrentKafkaListenerContainerFactory<String, Object> factory,
+                                                    Environment environment) {
+        factory.setConcurrency(3);
+        // spring.threads.virtual.enabled on Java 21: consumer threads are virtual, like Tomcat and @Async ones
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor listenerExecutor = new SimpleAsyncTaskExecutor("moderation-listener-");
+            listenerExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerExecutor);
+        }
+    }
 }
@@ -1,6 +1,9 @@
 package com.example.moderation.config;
 
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
+import org.springframework.beans.BeanUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
@@ -58,4 +61,52 @@ public class ModerationRulesConfig {
      * Включить/выключить проверку активных обращений
      */
     private boolean activeRequestsCheckEnabled = true;
+    
+    /**
+     * Согласованная копия текущих значений. Правила читают конфигурацию только через неё,
+     * поэтому изменение через {@link #update} не видно им наполовину.
+     */
+    public synchronized ModerationRulesConfig snapshot() {
+        ModerationRulesConfig copy = new ModerationRulesConfig();
+        BeanUtils.copyProperties(this, copy);
+        return copy;
+    }
+    
+    /**
+     * Применяет частичное изменение: поля, равные null, сохраняют текущие значения.
+     * Результат проверяется целиком до применения, при ошибке конфигурация не меняется.
+     *
+     * @return применённая конфигурация
+     * @throws IllegalArgumentException если результат недопустим
+     */
+    public synchronized ModerationRulesConfig update(Update update) {
+        ModerationRulesConfig next = snapshot();
+        if (update.workingHoursCategories() != null) next.setWorkingHoursCategories(List.copyOf(update.workingHoursCategories()));
+        if (update.workingHoursStart() != null) next.setWorkingHoursStart(update.workingHoursStart());
+        if (update.workingHoursEnd() != null) next.setWorkingHoursEnd(update.workingHoursEnd());
+        if (update.allowMultipleActiveCategories() != null) {
+            next.setAllowMultipleActiveCategories(List.copyOf(update.allowMultipleActiveCategories()));
+        }
+        if (update.maxActiveRequestsPerCategory() != null) next.setMaxActiveRequestsPerCategory(update.maxActiveRequestsPerCategory());
+        if (update.workingHoursCheckEnabled() != null) next.setWorkingHoursCheckEnabled(update.workingHoursCheckEnabled());
+        if (update.activeRequestsCheckEnabled() != null) next.setActiveRequestsCheckEnabled(update.activeRequestsCheckEnabled());
+        if (!next.getWorkingHoursStart().isBefore(next.getWorkingHoursEnd())) {
+            throw new IllegalArgumentException("workingHoursStart must be before workingHoursEnd");
+        }
+        BeanUtils.copyProperties(next, this);
+        return next;
+    }
+    
+    /**
+     * Частичное изменение конфигурации правил (тело PUT /api/v1/moderation/rules/config).
+     * Отсутствующее поле (null) не меняется; пустой список очищает категории.
+     */
+    public record Update(List<@NotBlank String> workingHoursCategories,
+                         LocalTime workingHoursStart,
+                         LocalTime workingHoursEnd,
+                         List<@NotBlank String> allowMultipleActiveCategories,
+                         @Min(1) Integer maxActiveRequestsPerCategory,
+                         Boolean workingHoursCheckEnabled,
+                         Boolean activeRequestsCheckEnabled) {
+    }
 }
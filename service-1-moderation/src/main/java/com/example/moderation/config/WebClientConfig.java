@@ -9,6 +9,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
@@ -22,9 +23,39 @@ public class WebClientConfig {
     @Value("${enrichment.service.timeout:5000}")
     private int timeout;
     
+    @Value("${enrichment.service.pool.max-connections:64}")
+    private int maxConnections;
+    
+    @Value("${enrichment.service.pool.pending-acquire-max-count:256}")
+    private int pendingAcquireMaxCount;
+    
+    @Value("${enrichment.service.pool.pending-acquire-timeout:2s}")
+    private Duration pendingAcquireTimeout;
+    
+    @Value("${enrichment.service.pool.max-idle-time:30s}")
+    private Duration maxIdleTime;
+    
+    @Value("${enrichment.service.pool.max-life-time:5m}")
+    private Duration maxLifeTime;
+    
+    @Value("${enrichment.service.pool.evict-in-background:30s}")
+    private Duration evictInBackground;
+    
     @Bean
     public WebClient webClient() {
-        HttpClient httpClient = HttpClient.create()
+        // Explicit pool instead of the shared default (500 connections, 1000 pending, no idle eviction):
+        // sized to the bulkhead, idle and old connections are closed before Service-2 or a proxy drops them.
+        // reactor.netty.connection.provider.* metrics show active, idle and pending connections
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("service-2")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInBackground)
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeout)
                 .responseTimeout(Duration.ofMillis(timeout))
                 .doOnConnected(conn -> 
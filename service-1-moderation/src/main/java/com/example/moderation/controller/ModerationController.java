@@ -1,10 +1,14 @@
 package com.example.moderation.controller;
 
+import com.example.moderation.config.ModerationRulesConfig;
+import com.example.moderation.kafka.DeadLetterReplayer;
 import com.example.moderation.model.CustomerRequestEvent;
 import com.example.moderation.model.ProcessedEvent;
 import com.example.moderation.repository.ProcessedEventRepository;
+import com.example.moderation.service.EnrichmentClientService;
 import com.example.moderation.service.ModerationRulesEngine;
 import com.example.moderation.service.ModerationService;
+import com.example.moderation.service.ProcessedEventFilter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -34,8 +38,12 @@ public class ModerationController {
     
     private final ModerationService moderationService;
     private final ModerationRulesEngine rulesEngine;
+    private final ModerationRulesConfig rulesConfig;
     private final ProcessedEventRepository processedEventRepository;
+    private final ProcessedEventFilter processedEventFilter;
     private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final DeadLetterReplayer deadLetterReplayer;
+    private final EnrichmentClientService enrichmentClient;
     
     @Value("${kafka.topics.input}")
     private String inputTopic;
@@ -102,6 +110,8 @@ public class ModerationController {
                 "rejectedActiveRequest", processedEventRepository.countByResult(ProcessedEvent.ProcessingResult.REJECTED_ACTIVE_REQUEST),
                 "rejectedOutsideHours", processedEventRepository.countByResult(ProcessedEvent.ProcessingResult.REJECTED_OUTSIDE_HOURS),
                 "registeredRules", rulesEngine.getRegisteredRules(),
+                "evaluationOrder", rulesEngine.getEvaluationOrder(),
+                "ruleStatistics", rulesEngine.getRuleStatistics(),
                 "timestamp", LocalDateTime.now()));
     }
     
@@ -110,6 +120,7 @@ public class ModerationController {
     public ResponseEntity<Map<String, String>> deleteProcessedEvent(@PathVariable String eventId) {
         if (processedEventRepository.existsByEventId(eventId)) {
             processedEventRepository.deleteById(eventId);
+            processedEventFilter.forget(eventId);
             return ResponseEntity.ok(Map.of("status", "DELETED", "eventId", eventId));
         }
         return ResponseEntity.notFound().build();
@@ -120,13 +131,47 @@ public class ModerationController {
     public ResponseEntity<Map<String, Object>> clearAllEvents() {
         long count = processedEventRepository.count();
         processedEventRepository.deleteAll();
+        processedEventFilter.forgetAll();
         return ResponseEntity.ok(Map.of("status", "CLEARED", "deletedCount", count));
     }
     
+    @PostMapping("/dlt/replay")
+    @Operation(summary = "Повторить события из DLT", description = "Отправляет в Topic-1 до limit событий, исчерпавших попытки retry-топиков; каждое событие из DLT повторяется один раз")
+    public ResponseEntity<Map<String, Object>> replayDeadLetters(@RequestParam(defaultValue = "100") int limit) {
+        int replayed = deadLetterReplayer.replay(limit);
+        return ResponseEntity.ok(Map.of("status", "REPLAYED", "replayedCount", replayed,
+                "from", deadLetterReplayer.deadLetterTopic(), "to", inputTopic, "timestamp", LocalDateTime.now()));
+    }
+    
+    @GetMapping("/rules/config")
+    @Operation(summary = "Получить конфигурацию правил")
+    public ResponseEntity<ModerationRulesConfig> getRulesConfig() {
+        return ResponseEntity.ok(rulesConfig.snapshot());
+    }
+    
+    @PutMapping("/rules/config")
+    @Operation(summary = "Изменить конфигурацию правил", description = "Частичное изменение: переданные поля заменяют текущие значения, остальные сохраняются; применяется без перезапуска, план проверки правил пересобирается")
+    public ResponseEntity<Map<String, Object>> updateRulesConfig(@Valid @RequestBody ModerationRulesConfig.Update update) {
+        ModerationRulesConfig applied;
+        try {
+            applied = rulesConfig.update(update);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected moderation rules config update: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("status", "VALIDATION_ERROR", "message", e.getMessage(),
+                    "timestamp", LocalDateTime.now()));
+        }
+        rulesEngine.rebuildPlan();
+        log.info("Moderation rules config updated: {}", applied);
+        return ResponseEntity.ok(Map.of("status", "UPDATED", "config", applied,
+                "registeredRules", rulesEngine.getRegisteredRules(), "timestamp", LocalDateTime.now()));
+    }
+    
     @GetMapping("/health")
     @Operation(summary = "Проверка состояния")
     public ResponseEntity<Map<String, Object>> health() {
-        return ResponseEntity.ok(Map.of("status", "UP", "service", "moderation-service", 
-                "timestamp", LocalDateTime.now(), "rulesCount", rulesEngine.getRegisteredRules().size()));
+        // DEGRADED: Service-2 circuit breaker open, events are decided on empty enrichment data
+        return ResponseEntity.ok(Map.of("status", enrichmentClient.isDegraded() ? "DEGRADED" : "UP",
+                "service", "moderation-service", "timestamp", LocalDateTime.now(),
+                "rulesCount", rulesEngine.getRegisteredRules().size(), "enrichment", enrichmentClient.resilienceState()));
     }
 }
@@ -44,8 +44,38 @@ public class GlobalExceptionHandler {
                 "error", ex.getMessage(), "timestamp", LocalDateTime.now()));
     }
     
+    @ExceptionHandler(EventInProgressException.class)
+    public ResponseEntity<Map<String, Object>> handleEventInProgress(EventInProgressException ex) {
+        log.warn("Event in progress: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "status", "IN_PROGRESS", "message", "Event is being processed, retry later",
+                "eventId", ex.getEventId(), "timestamp", LocalDateTime.now()));
+    }
+    
     public static class EnrichmentServiceException extends RuntimeException {
         public EnrichmentServiceException(String message) { super(message); }
         public EnrichmentServiceException(String message, Throwable cause) { super(message, cause); }
     }
+    
+    // Another consumer holds the event's claim and its lease has not run out: not a duplicate yet,
+    // the event has to be delivered again rather than acked
+    public static class EventInProgressException extends RuntimeException {
+        private final String eventId;
+        public EventInProgressException(String eventId) {
+            super("Event " + eventId + " is being processed by another consumer");
+            this.eventId = eventId;
+        }
+        public String getEventId() { return eventId; }
+    }
+    
+    // The event's outcome could not be written (MongoDB error): it is not processed, the offset must not be
+    // acked and the event has to be delivered again
+    public static class OutcomeNotRecordedException extends RuntimeException {
+        private final String eventId;
+        public OutcomeNotRecordedException(String eventId, Throwable cause) {
+            super("Outcome of event " + eventId + " was not recorded: " + (cause != null ? cause.getMessage() : "unknown error"), cause);
+            this.eventId = eventId;
+        }
+        public String getEventId() { return eventId; }
+    }
 }
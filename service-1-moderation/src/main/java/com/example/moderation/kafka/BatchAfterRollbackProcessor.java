@@ -0,0 +1,130 @@
+package com.example.moderation.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.listener.RecoveryStrategy;
+import org.springframework.kafka.listener.SeekUtils;
+import org.springframework.kafka.listener.adapter.RecordFilterStrategy;
+import org.springframework.util.backoff.BackOff;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+// DefaultAfterRollbackProcessor never recovers a batch: it rewinds the whole poll and backs off, so a record
+// that always fails would hold its partitions forever. This one takes the failed record from the listener's
+// BatchListenerFailedException and counts its attempts; once they are used up the record goes to the recoverer
+// in a transaction of its own. The rest of the poll was rolled back with it and is replayed. The recovered record
+// is committed right away when nothing before it in its partition is pending, otherwise it is dropped
+// from the replay by the container's record filter and committed with it.
+// A failure without a record index rewinds and backs off as before.
+@Slf4j
+public class BatchAfterRollbackProcessor extends DefaultAfterRollbackProcessor<String, Object>
+        implements RecordFilterStrategy<String, Object> {
+
+    private final KafkaOperations<?, ?> kafkaOperations;
+    // recovered records left in the middle of a poll, skipped until a delivery starts past them
+    private final Set<RecordPosition> recovered = ConcurrentHashMap.newKeySet();
+
+    public BatchAfterRollbackProcessor(BiConsumer<ConsumerRecord<?, ?>, Exception> recoverer, BackOff backOff,
+                                       KafkaOperations<?, ?> kafkaOperations) {
+        super(recoverer, backOff, kafkaOperations, true);
+        this.kafkaOperations = kafkaOperations;
+    }
+
+    @Override
+    public void process(List<ConsumerRecord<String, Object>> records, Consumer<String, Object> consumer,
+                        MessageListenerContainer container, Exception exception, boolean recoverable,
+                        ContainerProperties.EOSMode eosMode) {
+        ConsumerRecord<String, Object> failed = failedRecord(records, exception);
+        if (failed == null) {
+            super.process(records, consumer, container, exception, recoverable, eosMode);
+            return;
+        }
+        boolean recoveredNow = recover(failed, consumer, container, exception);
+        // the poll was rolled back as a whole: every partition goes back to its first record, past a recovered one
+        Map<TopicPartition, Long> seeks = new LinkedHashMap<>();
+        records.stream().filter(record -> !recoveredNow || record != failed).forEach(record ->
+                seeks.merge(new TopicPartition(record.topic(), record.partition()), record.offset(), Math::min));
+        if (recoveredNow) seeks.putIfAbsent(new TopicPartition(failed.topic(), failed.partition()), failed.offset() + 1);
+        SeekUtils.seekPartitions(consumer, seeks, logger);
+        if (!recoveredNow) return;
+
+        TopicPartition partition = new TopicPartition(failed.topic(), failed.partition());
+        boolean leadsPartition = records.stream().noneMatch(record -> record.partition() == failed.partition()
+                && record.topic().equals(failed.topic()) && record.offset() < failed.offset());
+        if (leadsPartition) {
+            kafkaOperations.sendOffsetsToTransaction(Map.of(partition, new OffsetAndMetadata(failed.offset() + 1)),
+                    consumer.groupMetadata());
+        } else {
+            recovered.add(RecordPosition.of(failed));
+        }
+        log.warn("Recovered record {}@{} after its retries, replaying the rest of the poll", partition, failed.offset());
+    }
+
+    // Counts the attempt; true once the record went to the recoverer. A failed recovery is retried with the poll
+    private boolean recover(ConsumerRecord<String, Object> failed, Consumer<String, Object> consumer,
+                            MessageListenerContainer container, Exception exception) {
+        RecoveryStrategy failureTracker = getFailureTracker();
+        try {
+            return failureTracker.recovered(failed, exception, container, consumer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.error("Failed to recover record {}-{}@{}, replaying it: {}",
+                    failed.topic(), failed.partition(), failed.offset(), e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public List<ConsumerRecord<String, Object>> filterBatch(List<ConsumerRecord<String, Object>> records) {
+        if (recovered.isEmpty()) return records;
+        // a delivery that starts past a recovered record means the replay holding it was committed
+        Map<TopicPartition, Long> firstOffsets = new HashMap<>();
+        records.forEach(record -> firstOffsets.merge(new TopicPartition(record.topic(), record.partition()),
+                record.offset(), Math::min));
+        recovered.removeIf(skipped -> {
+            Long first = firstOffsets.get(skipped.partition());
+            return first != null && first > skipped.offset();
+        });
+        records.removeIf(this::filter);
+        return records;
+    }
+
+    @Override
+    public boolean filter(ConsumerRecord<String, Object> record) {
+        return recovered.contains(RecordPosition.of(record));
+    }
+
+    private static ConsumerRecord<String, Object> failedRecord(List<ConsumerRecord<String, Object>> records,
+                                                              Exception exception) {
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BatchListenerFailedException failure) {
+                int index = failure.getIndex();
+                return index >= 0 && index < records.size() ? records.get(index) : null;
+            }
+        }
+        return null;
+    }
+
+    // TopicPartitionOffset leaves the offset out of equals
+    private record RecordPosition(TopicPartition partition, long offset) {
+        static RecordPosition of(ConsumerRecord<?, ?> record) {
+            return new RecordPosition(new TopicPartition(record.topic(), record.partition()), record.offset());
+        }
+    }
+}
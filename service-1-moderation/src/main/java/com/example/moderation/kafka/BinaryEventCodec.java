@@ -0,0 +1,289 @@
+package com.example.moderation.kafka;
+
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.model.EnrichmentData;
+import com.example.moderation.model.ModerationResultEvent;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compact binary format of the Topic-1 / Topic-2 payloads.
+//   byte 0  format version (1); never '{' or JSON whitespace, which is how dual-read tells the formats apart
+//   byte 1  event type: 1 = CustomerRequestEvent, 2 = ModerationResultEvent (replaces the __TypeId__ header)
+//   fields in declaration order, no names:
+//     string    varint (UTF-8 length + 1), 0 = null
+//     enum      varint (ordinal + 1), 0 = null - constants may only be appended
+//     timestamp presence byte, zigzag varlong epoch seconds (UTC), varint nanos
+//     list      varint (size + 1), 0 = null
+//     nested    presence byte, then its fields
+// Adding or reordering fields needs a new version, and decode must keep reading the older ones.
+public final class BinaryEventCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final byte CUSTOMER_REQUEST_EVENT = 1;
+    private static final byte MODERATION_RESULT_EVENT = 2;
+
+    private static final CustomerRequestEvent.Priority[] PRIORITIES = CustomerRequestEvent.Priority.values();
+    private static final ModerationResultEvent.ModerationStatus[] STATUSES = ModerationResultEvent.ModerationStatus.values();
+    private static final EnrichmentData.CustomerLevel[] LEVELS = EnrichmentData.CustomerLevel.values();
+    private static final EnrichmentData.RequestStatus[] REQUEST_STATUSES = EnrichmentData.RequestStatus.values();
+
+    private BinaryEventCodec() {
+    }
+
+    // JSON payloads start with '{' (or whitespace), binary ones with a version byte below 0x09
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] > 0 && data[0] < '\t';
+    }
+
+    public static byte[] encode(Object event) {
+        Output out = new Output(256);
+        out.writeByte(VERSION);
+        if (event instanceof CustomerRequestEvent request) {
+            out.writeByte(CUSTOMER_REQUEST_EVENT);
+            writeRequest(out, request);
+        } else if (event instanceof ModerationResultEvent result) {
+            out.writeByte(MODERATION_RESULT_EVENT);
+            writeResult(out, result);
+        } else {
+            throw new SerializationException("No binary format for " + (event == null ? "null" : event.getClass().getName()));
+        }
+        return out.toByteArray();
+    }
+
+    public static Object decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        try {
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new SerializationException("Unsupported binary event format version " + version);
+            }
+            byte type = in.get();
+            return switch (type) {
+                case CUSTOMER_REQUEST_EVENT -> readRequest(in);
+                case MODERATION_RESULT_EVENT -> readResult(in);
+                default -> throw new SerializationException("Unknown binary event type " + type);
+            };
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new SerializationException("Truncated binary event", e);
+        }
+    }
+
+    private static void writeRequest(Output out, CustomerRequestEvent event) {
+        out.writeString(event.getEventId());
+        out.writeString(event.getCustomerId());
+        out.writeString(event.getRequestId());
+        out.writeString(event.getCategory());
+        out.writeString(event.getSubject());
+        out.writeString(event.getDescription());
+        out.writeEnum(event.getPriority());
+        out.writeTimestamp(event.getTimestamp());
+    }
+
+    private static CustomerRequestEvent readRequest(ByteBuffer in) {
+        return CustomerRequestEvent.builder()
+                .eventId(readString(in))
+                .customerId(readString(in))
+                .requestId(readString(in))
+                .category(readString(in))
+                .subject(readString(in))
+                .description(readString(in))
+                .priority(readEnum(in, PRIORITIES))
+                .timestamp(readTimestamp(in))
+                .build();
+    }
+
+    private static void writeResult(Output out, ModerationResultEvent event) {
+        out.writeString(event.getOriginalEventId());
+        out.writeString(event.getRequestId());
+        out.writeString(event.getCustomerId());
+        out.writeString(event.getCategory());
+        out.writeString(event.getSubject());
+        out.writeEnum(event.getPriority());
+        out.writeEnum(event.getStatus());
+        writeEnrichment(out, event.getEnrichmentData());
+        out.writeTimestamp(event.getProcessedAt());
+    }
+
+    private static ModerationResultEvent readResult(ByteBuffer in) {
+        return ModerationResultEvent.builder()
+                .originalEventId(readString(in))
+                .requestId(readString(in))
+                .customerId(readString(in))
+                .category(readString(in))
+                .subject(readString(in))
+                .priority(readEnum(in, PRIORITIES))
+                .status(readEnum(in, STATUSES))
+                .enrichmentData(readEnrichment(in))
+                .processedAt(readTimestamp(in))
+                .build();
+    }
+
+    private static void writeEnrichment(Output out, EnrichmentData data) {
+        out.writeByte(data == null ? 0 : 1);
+        if (data == null) {
+            return;
+        }
+        out.writeString(data.getCustomerId());
+        out.writeString(data.getCustomerName());
+        out.writeString(data.getCustomerEmail());
+        out.writeEnum(data.getCustomerLevel());
+        List<EnrichmentData.ActiveRequest> requests = data.getActiveRequests();
+        out.writeVarInt(requests == null ? 0 : requests.size() + 1);
+        if (requests != null) {
+            for (EnrichmentData.ActiveRequest request : requests) {
+                out.writeString(request.getRequestId());
+                out.writeString(request.getCategory());
+                out.writeString(request.getSubject());
+                out.writeTimestamp(request.getCreatedAt());
+                out.writeEnum(request.getStatus());
+            }
+        }
+        out.writeByte(data.isDataAvailable() ? 1 : 0);
+        out.writeString(data.getErrorMessage());
+    }
+
+    private static EnrichmentData readEnrichment(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        EnrichmentData.EnrichmentDataBuilder data = EnrichmentData.builder()
+                .customerId(readString(in))
+                .customerName(readString(in))
+                .customerEmail(readString(in))
+                .customerLevel(readEnum(in, LEVELS));
+        int size = readVarInt(in) - 1;
+        if (size >= 0) {
+            List<EnrichmentData.ActiveRequest> requests = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                requests.add(EnrichmentData.ActiveRequest.builder()
+                        .requestId(readString(in))
+                        .category(readString(in))
+                        .subject(readString(in))
+                        .createdAt(readTimestamp(in))
+                        .status(readEnum(in, REQUEST_STATUSES))
+                        .build());
+            }
+            data.activeRequests(requests);
+        }
+        return data
+                .dataAvailable(in.get() != 0)
+                .errorMessage(readString(in))
+                .build();
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static <E extends Enum<E>> E readEnum(ByteBuffer in, E[] constants) {
+        int ordinal = readVarInt(in) - 1;
+        if (ordinal >= constants.length) {
+            throw new SerializationException("Unknown " + constants[0].getDeclaringClass().getSimpleName() + " ordinal " + ordinal);
+        }
+        return ordinal < 0 ? null : constants[ordinal];
+    }
+
+    private static LocalDateTime readTimestamp(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        long raw = readVarLong(in);
+        long epochSecond = (raw >>> 1) ^ -(raw & 1);
+        return LocalDateTime.ofEpochSecond(epochSecond, readVarInt(in), ZoneOffset.UTC);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint");
+    }
+
+    // Growable buffer; one per encode call
+    private static final class Output {
+
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeEnum(Enum<?> value) {
+            writeVarInt(value == null ? 0 : value.ordinal() + 1);
+        }
+
+        void writeTimestamp(LocalDateTime value) {
+            writeByte(value == null ? 0 : 1);
+            if (value != null) {
+                long epochSecond = value.toEpochSecond(ZoneOffset.UTC);
+                writeVarLong((epochSecond << 1) ^ (epochSecond >> 63));
+                writeVarInt(value.getNano());
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int bytes) {
+            if (size + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + bytes));
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.moderation.kafka;
+
+import com.example.moderation.service.EnrichmentNearCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Drops near-cache entries when Service-2 reports a customer change (profile or active requests)
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "enrichment.cache.enabled", havingValue = "true")
+public class CustomerChangeConsumer implements ConsumerSeekAware {
+
+    private final EnrichmentNearCache nearCache;
+
+    @KafkaListener(
+            topics = "${kafka.topics.customer-changes}",
+            groupId = "${spring.application.name}-cache-${random.uuid}",
+            containerFactory = "customerChangesListenerContainerFactory"
+    )
+    public void onCustomerChanged(ConsumerRecord<String, String> record) {
+        log.debug("Customer changed: customerId={}, change={}", record.key(), record.value());
+        if (record.key() != null) {
+            nearCache.invalidate(record.key());
+        } else {
+            nearCache.invalidateAll();
+        }
+    }
+
+    // Changes published while this instance was not assigned could have been missed
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        nearCache.invalidateAll();
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.moderation.kafka;
+
+import com.example.moderation.exception.GlobalExceptionHandler;
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.service.ModerationMetrics;
+import com.example.moderation.service.ModerationService;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+// Batch-mode consumer: one poll is moderated as a unit and committed with a single ack.
+// A poll that fails is not acked: the container's error handler retries it and publishes the records
+// that keep failing to the DLT (see KafkaConfig)
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "batch")
+public class CustomerRequestBatchConsumer {
+
+    private final ModerationService moderationService;
+    private final ModerationMetrics metrics;
+
+    @KafkaListener(
+            topics = "${kafka.topics.input}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void consumeBatch(List<ConsumerRecord<String, CustomerRequestEvent>> records,
+                             Acknowledgment acknowledgment) {
+
+        log.info("Received batch: size={}, partitions={}", records.size(),
+                records.stream().map(ConsumerRecord::partition).distinct().toList());
+
+        List<CustomerRequestEvent> events = records.stream()
+                .map(ConsumerRecord::value)
+                .filter(Objects::nonNull)
+                .toList();
+
+        Timer.Sample sample = metrics.startConsume();
+        try {
+            List<ModerationService.ProcessingResult> results = moderationService.processBatch(events);
+            Map<ModerationService.ProcessingStatus, Long> byStatus = results.stream()
+                    .collect(Collectors.groupingBy(ModerationService.ProcessingResult::getStatus,
+                            Collectors.counting()));
+            log.info("Processed batch: size={}, statuses={}", results.size(), byStatus);
+        } catch (GlobalExceptionHandler.EventInProgressException e) {
+            // records before it are committed, the poll is redelivered from it once the error handler backs off
+            int index = indexOf(records, e.getEventId());
+            log.warn("Batch stopped at record {}: {}", index, e.getMessage());
+            metrics.stopConsume(sample, "batch");
+            throw new BatchListenerFailedException(e.getMessage(), e, index);
+        } catch (RuntimeException e) {
+            log.error("Error processing batch of {} records: {}", records.size(), e.getMessage(), e);
+            metrics.stopConsume(sample, "batch");
+            throw e;
+        }
+        acknowledgment.acknowledge();
+        // one sample per poll: the whole batch is acked at once
+        metrics.stopConsume(sample, "batch");
+    }
+
+    private static int indexOf(List<ConsumerRecord<String, CustomerRequestEvent>> records, String eventId) {
+        for (int i = 0; i < records.size(); i++) {
+            CustomerRequestEvent event = records.get(i).value();
+            if (event != null && eventId.equals(event.getEventId())) return i;
+        }
+        return 0;
+    }
+}
@@ -1,44 +1,136 @@
 package com.example.moderation.kafka;
 
+import com.example.moderation.exception.GlobalExceptionHandler;
 import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.service.ModerationMetrics;
 import com.example.moderation.service.ModerationService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.retrytopic.DeadLetterPublishingRecovererFactory;
+import org.springframework.kafka.retrytopic.DestinationTopicResolver;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletionException;
+
+// Record-mode consumer. Events that fail on Service-2 are not retried on the listener thread: they are
+// parked on tiered retry topics (customer-requests-topic-retry-0, -1, ...) and end up in the DLT
+// (customer-requests-topic-dlt) once the attempts are used up; DeadLetterReplayer sends them back.
+// Events whose claim another consumer holds take the same way: by the time they come back from a retry topic
+// the claim is either completed (a duplicate) or past its lease (taken over).
+// An outcome that could not be written fails after the listener has returned (write-behind): the record is
+// forwarded to the next retry topic from the completion callback, by the same recoverer the error handler uses,
+// and acked once that topic has it.
 @Slf4j
 @Component
-@RequiredArgsConstructor
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "record", matchIfMissing = true)
 public class CustomerRequestEventConsumer {
     
+    // main endpoint id: the retry topic chain is registered under it
+    public static final String LISTENER_ID = "customer-request-consumer";
+    
     private final ModerationService moderationService;
+    private final ModerationMetrics metrics;
+    // registered while the listeners are processed, after this bean is created
+    private final ObjectProvider<DestinationTopicResolver> destinationTopicResolver;
+    private volatile DeadLetterPublishingRecoverer retryRecoverer;
     
+    public CustomerRequestEventConsumer(ModerationService moderationService, ModerationMetrics metrics,
+                                        ObjectProvider<DestinationTopicResolver> destinationTopicResolver) {
+        this.moderationService = moderationService;
+        this.metrics = metrics;
+        this.destinationTopicResolver = destinationTopicResolver;
+    }
+    
+    @RetryableTopic(
+            attempts = "${kafka.retry.attempts:4}",
+            backoff = @Backoff(delayExpression = "${kafka.retry.delay-ms:5000}",
+                    multiplierExpression = "${kafka.retry.multiplier:6}",
+                    maxDelayExpression = "${kafka.retry.max-delay-ms:300000}"),
+            include = {GlobalExceptionHandler.EnrichmentServiceException.class,
+                    GlobalExceptionHandler.EventInProgressException.class,
+                    GlobalExceptionHandler.OutcomeNotRecordedException.class},
+            numPartitions = "${kafka.retry.partitions:3}",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_INDEX_VALUE,
+            dltTopicSuffix = DeadLetterReplayer.DLT_SUFFIX,
+            kafkaTemplate = "kafkaTemplate"
+    )
     @KafkaListener(
+            id = LISTENER_ID,
             topics = "${kafka.topics.input}",
             groupId = "${spring.kafka.consumer.group-id}",
             containerFactory = "kafkaListenerContainerFactory"
     )
-    public void consume(
-            @Payload CustomerRequestEvent event,
-            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-            @Header(KafkaHeaders.OFFSET) long offset,
-            Acknowledgment acknowledgment) {
-        
+    public void consume(ConsumerRecord<String, CustomerRequestEvent> record, Acknowledgment acknowledgment) {
+        CustomerRequestEvent event = record.value();
         log.info("Received: eventId={}, customerId={}, partition={}, offset={}", 
-                event.getEventId(), event.getCustomerId(), partition, offset);
+                event.getEventId(), event.getCustomerId(), record.partition(), record.offset());
         
+        Timer.Sample sample = metrics.startConsume();
         try {
-            ModerationService.ProcessingResult result = moderationService.processEvent(event);
-            log.info("Processed: eventId={}, status={}", result.getEventId(), result.getStatus());
-            acknowledgment.acknowledge();
+            // with write-behind persistence the outcome is recorded later, the offset is acked only after that
+            moderationService.submitEvent(event).whenComplete((result, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                if (cause instanceof GlobalExceptionHandler.OutcomeNotRecordedException notRecorded) {
+                    forwardToRetryTopic(record, notRecorded, acknowledgment);
+                } else {
+                    if (error != null) log.error("Error processing eventId={}: {}", event.getEventId(), error.getMessage(), error);
+                    else log.info("Processed: eventId={}, status={}", result.getEventId(), result.getStatus());
+                    acknowledgment.acknowledge();
+                }
+                metrics.stopConsume(sample, "record");
+            });
+        } catch (GlobalExceptionHandler.EnrichmentServiceException | GlobalExceptionHandler.EventInProgressException e) {
+            // not acked: the error handler forwards the record to the next retry topic and commits its offset
+            log.warn("Parking eventId={} on a retry topic: {}", event.getEventId(), e.getMessage());
+            metrics.stopConsume(sample, "record");
+            throw e;
         } catch (Exception e) {
             log.error("Error processing eventId={}: {}", event.getEventId(), e.getMessage(), e);
             acknowledgment.acknowledge();
+            metrics.stopConsume(sample, "record");
+        }
+    }
+    
+    // Blocks until the broker has the record; if it cannot be sent either, the record stays unacked
+    // and is delivered again after a rebalance or restart
+    private void forwardToRetryTopic(ConsumerRecord<String, CustomerRequestEvent> record,
+                                     GlobalExceptionHandler.OutcomeNotRecordedException error,
+                                     Acknowledgment acknowledgment) {
+        try {
+            retryRecoverer().accept(record, null, error);
+            log.warn("Outcome of eventId={} not recorded, forwarded to the next retry topic: {}",
+                    error.getEventId(), error.getMessage());
+            acknowledgment.acknowledge();
+        } catch (Exception e) {
+            log.error("Leaving eventId={} unacked, outcome not recorded and retry topic send failed: {}",
+                    error.getEventId(), e.getMessage());
         }
     }
+    
+    private DeadLetterPublishingRecoverer retryRecoverer() {
+        DeadLetterPublishingRecoverer recoverer = retryRecoverer;
+        if (recoverer == null) {
+            recoverer = new DeadLetterPublishingRecovererFactory(destinationTopicResolver.getObject()).create(LISTENER_ID);
+            retryRecoverer = recoverer;
+        }
+        return recoverer;
+    }
+    
+    @DltHandler
+    public void onDeadLetter(@Payload CustomerRequestEvent event, Acknowledgment acknowledgment) {
+        // the cause is logged by the recoverer that published the record
+        log.error("Retries exhausted, eventId={}, customerId={} parked in the DLT", event.getEventId(), event.getCustomerId());
+        acknowledgment.acknowledge();
+    }
 }
@@ -0,0 +1,76 @@
+package com.example.moderation.kafka;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Sends events parked in the DLT back to Topic-1. Progress is kept as committed offsets of a group of its own,
+// so every dead letter is replayed once; a replayed event that fails again comes back through the retry topics.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeadLetterReplayer {
+
+    public static final String DLT_SUFFIX = "-dlt";
+
+    private static final String REPLAY_GROUP = "moderation-dlt-replay";
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    @Value("${kafka.topics.input}")
+    private String inputTopic;
+
+    public String deadLetterTopic() {
+        return inputTopic + DLT_SUFFIX;
+    }
+
+    // Replays up to limit dead letters, oldest first; returns how many were sent to Topic-1
+    public synchronized int replay(int limit) {
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer(REPLAY_GROUP, "replay")) {
+            List<TopicPartition> partitions = consumer.partitionsFor(deadLetterTopic()).stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .toList();
+            if (partitions.isEmpty()) return 0;
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+            List<CompletableFuture<?>> sends = new ArrayList<>();
+            Map<TopicPartition, OffsetAndMetadata> replayed = new HashMap<>();
+            while (sends.size() < limit && !caughtUp(consumer, endOffsets)) {
+                for (ConsumerRecord<String, Object> deadLetter : consumer.poll(POLL_TIMEOUT)) {
+                    if (sends.size() >= limit) break;
+                    // headers stay behind: the event starts over with a fresh attempt count
+                    sends.add(kafkaTemplate.send(inputTopic, deadLetter.key(), deadLetter.value()));
+                    replayed.put(new TopicPartition(deadLetter.topic(), deadLetter.partition()),
+                            new OffsetAndMetadata(deadLetter.offset() + 1));
+                }
+            }
+            // commit only what Topic-1 has accepted
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+            if (!replayed.isEmpty()) consumer.commitSync(replayed);
+            log.info("Replayed {} events from {} to {}", sends.size(), deadLetterTopic(), inputTopic);
+            return sends.size();
+        }
+    }
+
+    private static boolean caughtUp(Consumer<?, ?> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+                .allMatch(end -> consumer.position(end.getKey()) >= end.getValue());
+    }
+}
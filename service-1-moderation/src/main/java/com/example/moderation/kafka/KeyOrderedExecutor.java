@@ -0,0 +1,51 @@
+package com.example.moderation.kafka;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+// Runs tasks on a shared pool, in submission order per key and in parallel across keys.
+// A task of a key starts only when the previous task of that key, including the future it returned,
+// has completed (successfully or not). Keys with nothing in flight are dropped from the map.
+public class KeyOrderedExecutor {
+
+    private final Executor workers;
+    private final Map<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    public KeyOrderedExecutor(Executor workers) {
+        this.workers = workers;
+    }
+
+    public <T> CompletableFuture<T> submit(String key, Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        tails.compute(key, (k, tail) -> {
+            CompletableFuture<?> previous = tail != null ? tail : CompletableFuture.completedFuture(null);
+            previous.whenCompleteAsync((ignored, previousError) -> run(key, task, result), workers);
+            return result;
+        });
+        return result;
+    }
+
+    public int keysInFlight() {
+        return tails.size();
+    }
+
+    private <T> void run(String key, Supplier<CompletableFuture<T>> task, CompletableFuture<T> result) {
+        try {
+            task.get().whenComplete((value, error) -> finish(key, result, value, error));
+        } catch (Throwable e) {
+            finish(key, result, null, e);
+        }
+    }
+
+    // The key leaves the map before callers observe completion, unless a later task is already chained
+    private <T> void finish(String key, CompletableFuture<T> result, T value, Throwable error) {
+        tails.remove(key, result);
+        if (error == null) result.complete(value);
+        else result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.moderation.kafka;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+
+// Value deserializer of Topic-1 / Topic-2. Binary payloads (see BinaryEventCodec) carry their type;
+// JSON ones are handed to spring-kafka's JsonDeserializer (configured as before) while DUAL_READ is on,
+// so a topic can hold both formats during the switch. Turn DUAL_READ off once no JSON is left.
+public class ModerationEventDeserializer implements Deserializer<Object> {
+
+    public static final String DUAL_READ = "moderation.serialization.dual-read";
+
+    private final JsonDeserializer<Object> json = new JsonDeserializer<>();
+    private boolean dualRead = true;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object value = configs.get(DUAL_READ);
+        dualRead = value == null || Boolean.parseBoolean(value.toString());
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public Object deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (BinaryEventCodec.isBinary(data)) {
+            return BinaryEventCodec.decode(data);
+        }
+        if (!dualRead) {
+            throw new SerializationException("JSON payload on " + topic + " while dual-read is off");
+        }
+        return headers != null ? json.deserialize(topic, headers, data) : json.deserialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
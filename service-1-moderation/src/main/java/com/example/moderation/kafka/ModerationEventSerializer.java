@@ -0,0 +1,45 @@
+package com.example.moderation.kafka;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+
+// Value serializer of Topic-1 / Topic-2: BinaryEventCodec when FORMAT is "binary", otherwise
+// spring-kafka's JsonSerializer with type headers. Readers have to run ModerationEventDeserializer
+// with dual-read before the writers are switched to binary.
+public class ModerationEventSerializer implements Serializer<Object> {
+
+    public static final String FORMAT = "moderation.serialization.format";
+
+    private final JsonSerializer<Object> json = new JsonSerializer<>();
+    private boolean binary;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        binary = "binary".equalsIgnoreCase(String.valueOf(configs.get(FORMAT)));
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (binary) {
+            return BinaryEventCodec.encode(data);
+        }
+        return headers != null ? json.serialize(topic, headers, data) : json.serialize(topic, data);
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
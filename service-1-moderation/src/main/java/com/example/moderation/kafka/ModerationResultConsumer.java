@@ -15,7 +15,8 @@ public class ModerationResultConsumer {
     @KafkaListener(
             topics = "${kafka.topics.output}",
             groupId = "moderation-result-logger",
-            containerFactory = "kafkaListenerContainerFactory"
+            containerFactory = "kafkaListenerContainerFactory",
+            batch = "false"
     )
     public void consumeResult(
             @Payload ModerationResultEvent event,
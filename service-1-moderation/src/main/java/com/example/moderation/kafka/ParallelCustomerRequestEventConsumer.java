@@ -0,0 +1,172 @@
+package com.example.moderation.kafka;
+
+import com.example.moderation.exception.GlobalExceptionHandler;
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.service.ModerationMetrics;
+import com.example.moderation.service.ModerationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Parallel-mode consumer: records of one partition fan out over a worker pool, ordered only per record key
+// (customerId). Offsets are acked as events complete; with async acks the container commits the lowest
+// contiguous completed offset per partition, and pauses until a poll is fully acked, which bounds work in flight.
+// An event whose claim another consumer holds is not acked: its task checks again every in-progress-retry,
+// keeping later events of the key behind it, until the claim is completed (a duplicate) or expired (taken over).
+// A Service-2 failure is retried the same way every kafka.retry.delay-ms, attempts - 1 times. An event still
+// failing after that (or still claimed elsewhere) goes to the DLT, as in batch mode, and is acked once the DLT
+// has it; if the DLT send fails as well, it is left unacked and redelivered after a rebalance or restart.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "parallel")
+public class ParallelCustomerRequestEventConsumer {
+
+    private final ModerationService moderationService;
+    private final ModerationMetrics metrics;
+    private final Executor workers;
+    private final KeyOrderedExecutor keyOrderedExecutor;
+    private final Duration inProgressRetry;
+    private final long inProgressRetries;
+    private final Duration failureRetry;
+    private final int failureAttempts;
+    private final ConsumerRecordRecoverer deadLetterRecoverer;
+
+    public ParallelCustomerRequestEventConsumer(ModerationService moderationService,
+                                                @Value("${kafka.consumer.parallel.workers:64}") int workerCount,
+                                                @Value("${moderation.idempotency.lease-timeout:5m}") Duration leaseTimeout,
+                                                @Value("${moderation.idempotency.in-progress-retry:5s}") Duration inProgressRetry,
+                                                @Value("${kafka.retry.attempts:4}") int failureAttempts,
+                                                @Value("${kafka.retry.delay-ms:5000}") long failureRetryMs,
+                                                ConsumerRecordRecoverer deadLetterRecoverer,
+                                                Environment environment,
+                                                ModerationMetrics metrics,
+                                                MeterRegistry meterRegistry) {
+        this.moderationService = moderationService;
+        this.metrics = metrics;
+        // virtual threads: one per event, in-flight events are bounded by the poll size anyway
+        boolean virtual = Threading.VIRTUAL.isActive(environment);
+        this.workers = virtual ? virtualWorkers() : Executors.newFixedThreadPool(workerCount, workerThreadFactory());
+        this.keyOrderedExecutor = new KeyOrderedExecutor(workers);
+        this.inProgressRetry = inProgressRetry;
+        this.inProgressRetries = leaseTimeout.toMillis() / inProgressRetry.toMillis() + 1;
+        this.failureRetry = Duration.ofMillis(failureRetryMs);
+        this.failureAttempts = failureAttempts;
+        this.deadLetterRecoverer = deadLetterRecoverer;
+        meterRegistry.gauge("moderation.consumer.parallel.keys-in-flight", keyOrderedExecutor, KeyOrderedExecutor::keysInFlight);
+        log.info("Parallel consumer enabled: workers={}", virtual ? "virtual" : workerCount);
+    }
+
+    @KafkaListener(
+            topics = "${kafka.topics.input}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void consume(ConsumerRecord<String, CustomerRequestEvent> record, Acknowledgment acknowledgment) {
+        CustomerRequestEvent event = record.value();
+        log.info("Received: eventId={}, customerId={}, partition={}, offset={}",
+                event.getEventId(), event.getCustomerId(), record.partition(), record.offset());
+
+        String key = record.key() != null ? record.key() : event.getCustomerId();
+        Timer.Sample sample = metrics.startConsume();
+        try {
+            keyOrderedExecutor.submit(key, () -> submitWithRetries(event, 0, 1))
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            deadLetter(record, error, acknowledgment, sample);
+                            return;
+                        }
+                        log.info("Processed: eventId={}, status={}", result.getEventId(), result.getStatus());
+                        acknowledgment.acknowledge();
+                        metrics.stopConsume(sample, "parallel");
+                    });
+        } catch (Exception e) {
+            log.error("Error submitting eventId={}: {}", event.getEventId(), e.getMessage(), e);
+            deadLetter(record, e, acknowledgment, sample);
+        }
+    }
+
+    // The waits hold no worker: the next attempt is scheduled on the pool
+    private CompletableFuture<ModerationService.ProcessingResult> submitWithRetries(CustomerRequestEvent event,
+                                                                                    int inProgressChecks, int attempt) {
+        try {
+            return moderationService.submitEvent(event);
+        } catch (GlobalExceptionHandler.EventInProgressException e) {
+            if (inProgressChecks >= inProgressRetries) throw e;
+            log.info("eventId={} is in progress elsewhere, checking again in {}", event.getEventId(), inProgressRetry);
+            return later(inProgressRetry, () -> submitWithRetries(event, inProgressChecks + 1, attempt));
+        } catch (GlobalExceptionHandler.EnrichmentServiceException e) {
+            if (attempt >= failureAttempts) throw e;
+            log.warn("Service-2 failed for eventId={} (attempt {} of {}), retrying in {}: {}",
+                    event.getEventId(), attempt, failureAttempts, failureRetry, e.getMessage());
+            return later(failureRetry, () -> submitWithRetries(event, inProgressChecks, attempt + 1));
+        }
+    }
+
+    private <T> CompletableFuture<T> later(Duration delay, Supplier<CompletableFuture<T>> task) {
+        Executor delayed = CompletableFuture.delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS, workers);
+        return CompletableFuture.supplyAsync(task, delayed).thenCompose(Function.identity());
+    }
+
+    // On a worker: the recoverer blocks until the broker has acknowledged the dead letter
+    private void deadLetter(ConsumerRecord<String, CustomerRequestEvent> record, Throwable error,
+                            Acknowledgment acknowledgment, Timer.Sample sample) {
+        String eventId = record.value().getEventId();
+        log.error("Sending eventId={} to the DLT: {}", eventId, error.getMessage());
+        Exception cause = error instanceof Exception exception ? exception : new IllegalStateException(error);
+        CompletableFuture.runAsync(() -> deadLetterRecoverer.accept(record, cause), workers)
+                .whenComplete((ignored, sendError) -> {
+                    if (sendError == null) acknowledgment.acknowledge();
+                    else log.error("Leaving eventId={} unacked, DLT send failed: {}", eventId, sendError.getMessage());
+                    metrics.stopConsume(sample, "parallel");
+                });
+    }
+
+    // Listener containers are stopped by now; events already handed over are allowed to finish
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (workers instanceof SimpleAsyncTaskExecutor virtualWorkers) {
+            virtualWorkers.close();
+        } else if (workers instanceof ExecutorService pool) {
+            pool.shutdown();
+            if (!pool.awaitTermination(30, TimeUnit.SECONDS)) pool.shutdownNow();
+        }
+    }
+
+    private static SimpleAsyncTaskExecutor virtualWorkers() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("moderation-worker-");
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(TimeUnit.SECONDS.toMillis(30));
+        return executor;
+    }
+
+    private static ThreadFactory workerThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "moderation-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
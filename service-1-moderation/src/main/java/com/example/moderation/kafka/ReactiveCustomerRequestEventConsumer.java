@@ -0,0 +1,86 @@
+package com.example.moderation.kafka;
+
+import com.example.moderation.exception.GlobalExceptionHandler;
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.service.ModerationMetrics;
+import com.example.moderation.service.ModerationService;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+// Reactive-mode consumer: hands the event to the non-blocking pipeline and returns immediately;
+// the offset is acked when the pipeline completes. With async acks an unacked record holds back the commits
+// of its partition, so every record ends acked: an event still claimed elsewhere once the pipeline has waited
+// out the lease goes to the DLT, as in batch and parallel modes, and is acked once the DLT has it;
+// if the DLT send fails, the event is processed again.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "reactive")
+public class ReactiveCustomerRequestEventConsumer {
+
+    private final ModerationService moderationService;
+    private final ModerationMetrics metrics;
+    private final ConsumerRecordRecoverer deadLetterRecoverer;
+
+    @KafkaListener(
+            topics = "${kafka.topics.input}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void consume(ConsumerRecord<String, CustomerRequestEvent> record, Acknowledgment acknowledgment) {
+        CustomerRequestEvent event = record.value();
+        log.info("Received: eventId={}, customerId={}, partition={}, offset={}",
+                event.getEventId(), event.getCustomerId(), record.partition(), record.offset());
+
+        process(record, acknowledgment, metrics.startConsume());
+    }
+
+    private void process(ConsumerRecord<String, CustomerRequestEvent> record, Acknowledgment acknowledgment,
+                         Timer.Sample sample) {
+        CustomerRequestEvent event = record.value();
+        moderationService.processEventReactive(event).subscribe(
+                result -> {
+                    log.info("Processed: eventId={}, status={}", result.getEventId(), result.getStatus());
+                    acknowledgment.acknowledge();
+                    metrics.stopConsume(sample, "reactive");
+                },
+                error -> {
+                    if (error instanceof GlobalExceptionHandler.EventInProgressException inProgress) {
+                        deadLetter(record, inProgress, acknowledgment, sample);
+                        return;
+                    }
+                    log.error("Error processing eventId={}: {}", event.getEventId(), error.getMessage(), error);
+                    acknowledgment.acknowledge();
+                    metrics.stopConsume(sample, "reactive");
+                });
+    }
+
+    // The recoverer blocks until the broker has the record, so it runs off the pipeline's threads
+    private void deadLetter(ConsumerRecord<String, CustomerRequestEvent> record,
+                            GlobalExceptionHandler.EventInProgressException error,
+                            Acknowledgment acknowledgment, Timer.Sample sample) {
+        String eventId = record.value().getEventId();
+        log.error("Sending eventId={} to the DLT: {}", eventId, error.getMessage());
+        Mono.fromRunnable(() -> deadLetterRecoverer.accept(record, error))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(
+                        ignored -> { },
+                        sendError -> {
+                            log.error("DLT send failed for eventId={}, processing it again: {}", eventId, sendError.getMessage());
+                            process(record, acknowledgment, sample);
+                        },
+                        () -> {
+                            acknowledgment.acknowledge();
+                            metrics.stopConsume(sample, "reactive");
+                        });
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.moderation.kafka;
+
+import com.example.moderation.exception.GlobalExceptionHandler;
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.service.ModerationMetrics;
+import com.example.moderation.service.ModerationService;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+// Exactly-once consumer: a poll is moderated like in batch mode inside the Kafka transaction the container
+// opened for it. Topic-2 records and the Topic-1 offsets commit together; any exception aborts both
+// and the poll is redelivered, where the records re-claim their own events (see IdempotencyStore).
+// A failure tied to one event names its record, so that the container retries it and sends it to the DLT
+// once the retries are used up (see BatchAfterRollbackProcessor); any other failure replays the whole poll.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "kafka.consumer.mode", havingValue = "transactional")
+public class TransactionalCustomerRequestConsumer {
+
+    private final ModerationService moderationService;
+    private final ModerationMetrics metrics;
+
+    @KafkaListener(
+            topics = "${kafka.topics.input}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "transactionalListenerContainerFactory"
+    )
+    public void consumeBatch(List<ConsumerRecord<String, CustomerRequestEvent>> records) {
+
+        log.info("Received transactional batch: size={}, partitions={}", records.size(),
+                records.stream().map(ConsumerRecord::partition).distinct().toList());
+
+        List<ConsumerRecord<String, CustomerRequestEvent>> valid = records.stream()
+                .filter(record -> Objects.nonNull(record.value()))
+                .toList();
+        List<CustomerRequestEvent> events = valid.stream().map(ConsumerRecord::value).toList();
+        List<String> sources = valid.stream()
+                .map(record -> record.topic() + "-" + record.partition() + "@" + record.offset())
+                .toList();
+
+        Timer.Sample sample = metrics.startConsume();
+        try {
+            List<ModerationService.ProcessingResult> results = moderationService.processBatch(events, sources);
+            Map<ModerationService.ProcessingStatus, Long> byStatus = results.stream()
+                    .collect(Collectors.groupingBy(ModerationService.ProcessingResult::getStatus,
+                            Collectors.counting()));
+            log.info("Processed transactional batch: size={}, statuses={}", results.size(), byStatus);
+        } catch (GlobalExceptionHandler.EventInProgressException e) {
+            throw failedAt(records, e.getEventId(), e);
+        } catch (GlobalExceptionHandler.OutcomeNotRecordedException e) {
+            throw failedAt(records, e.getEventId(), e);
+        } finally {
+            // offsets are committed by the container together with the transaction
+            metrics.stopConsume(sample, "transactional");
+        }
+    }
+
+    private static BatchListenerFailedException failedAt(List<ConsumerRecord<String, CustomerRequestEvent>> records,
+                                                         String eventId, RuntimeException cause) {
+        int index = 0;
+        for (int i = 0; i < records.size(); i++) {
+            CustomerRequestEvent event = records.get(i).value();
+            if (event != null && eventId.equals(event.getEventId())) {
+                index = i;
+                break;
+            }
+        }
+        log.warn("Transactional batch failed at record {}: {}", index, cause.getMessage());
+        return new BatchListenerFailedException(cause.getMessage(), cause, index);
+    }
+}
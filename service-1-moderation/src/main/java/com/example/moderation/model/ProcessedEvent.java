@@ -34,7 +34,12 @@ public class ProcessedEvent {
     @Indexed(expireAfterSeconds = 2592000) // 30 days TTL
     private LocalDateTime expireAt;
     
+    // Topic-1 record that claimed the event (topic-partition@offset), transactional mode only
+    private String source;
+    
     public enum ProcessingResult {
+        // claimed by a consumer, outcome not recorded yet (see IdempotencyStore)
+        PROCESSING,
         PUBLISHED, REJECTED_DUPLICATE, REJECTED_ACTIVE_REQUEST, REJECTED_OUTSIDE_HOURS, REJECTED_NO_DATA
     }
 }
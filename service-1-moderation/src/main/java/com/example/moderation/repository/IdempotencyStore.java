@@ -0,0 +1,447 @@
+package com.example.moderation.repository;
+
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.model.ProcessedEvent;
+import com.mongodb.ErrorCategory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Идемпотентная фиксация обработки событий в processed_events.
+ * <p>
+ * Событие захватывается одной вставкой документа со статусом PROCESSING: уникальный ключ _id
+ * гарантирует, что из нескольких конкурирующих обработчиков захват получит ровно один.
+ * Итог записывается обновлением, которое применяется только к своему захвату
+ * (статус PROCESSING и время захвата). Захват, не завершённый за lease-timeout
+ * (экземпляр упал посреди обработки), может быть перехвачен при повторной доставке.
+ * Конфликт вставки различает записанный итог (дубликат) и живой захват другого обработчика:
+ * событие с живым захватом не считается обработанным, его нужно доставить повторно.
+ * <p>
+ * В транзакционном режиме захват помечается исходной записью Topic-1. Повторная доставка той же
+ * записи означает, что транзакция Kafka предыдущей попытки прервана и её результат в Topic-2
+ * не виден: такой захват перехватывается сразу, даже если итог уже записан.
+ */
+@Slf4j
+@Repository
+public class IdempotencyStore {
+
+    private final MongoTemplate mongoTemplate;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final Duration leaseTimeout;
+    private final Duration retention;
+    private final MeterRegistry meterRegistry;
+    // one timer per operation, built on first use
+    private final Map<String, Timer> mongoTimers = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(MongoTemplate mongoTemplate,
+                            ReactiveMongoTemplate reactiveMongoTemplate,
+                            @Value("${moderation.idempotency.lease-timeout:5m}") Duration leaseTimeout,
+                            @Value("${moderation.idempotency.retention:30d}") Duration retention,
+                            MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.leaseTimeout = leaseTimeout;
+        this.retention = retention;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Захват события. Время захвата служит токеном: итог запишет только его владелец.
+     */
+    public record Claim(String eventId, LocalDateTime claimedAt) {
+    }
+
+    /**
+     * Исход попытки захвата или записи итога:
+     * CLAIMED - событие захвачено (для {@link #record} - итог записан),
+     * COMPLETED - итог уже записан, событие является дубликатом,
+     * IN_PROGRESS - событие обрабатывает другой обработчик и его lease-timeout не истёк.
+     */
+    public enum ClaimStatus { CLAIMED, COMPLETED, IN_PROGRESS }
+
+    /**
+     * Результат захвата одного события; claim задан только для CLAIMED.
+     */
+    public record ClaimResult(ClaimStatus status, Claim claim) {
+
+        static ClaimResult claimed(Claim claim) {
+            return new ClaimResult(ClaimStatus.CLAIMED, claim);
+        }
+
+        static ClaimResult of(ClaimStatus status) {
+            return new ClaimResult(status, null);
+        }
+    }
+
+    /**
+     * Итог обработки захваченного события.
+     */
+    public record Completion(Claim claim, ProcessedEvent outcome) {
+    }
+
+    /**
+     * Результат пакетного захвата: захваченные события, уже обработанные (дубликаты)
+     * и обрабатываемые другим обработчиком. События, не попавшие ни в одну из групп,
+     * захватить не удалось из-за ошибки записи.
+     */
+    public record BatchClaim(Map<String, Claim> claimed, Set<String> duplicates, Set<String> inProgress) {
+    }
+
+    /**
+     * Захватывает событие одной вставкой.
+     */
+    public ClaimResult claim(CustomerRequestEvent event) {
+        return timed("claim", () -> doClaim(event));
+    }
+
+    private ClaimResult doClaim(CustomerRequestEvent event) {
+        ProcessedEvent marker = processingMarker(event, now());
+        try {
+            mongoTemplate.insert(marker);
+            return ClaimResult.claimed(new Claim(event.getEventId(), marker.getProcessedAt()));
+        } catch (DuplicateKeyException e) {
+            return resolveConflict(event.getEventId(), mongoTemplate.findById(event.getEventId(), ProcessedEvent.class));
+        }
+    }
+
+    /**
+     * Неблокирующий вариант {@link #claim}.
+     */
+    public Mono<ClaimResult> claimReactive(CustomerRequestEvent event) {
+        ProcessedEvent marker = processingMarker(event, now());
+        return timed("claim", reactiveMongoTemplate.insert(marker)
+                .map(inserted -> ClaimResult.claimed(new Claim(event.getEventId(), marker.getProcessedAt())))
+                .onErrorResume(DuplicateKeyException.class, e -> resolveConflictReactive(event.getEventId())));
+    }
+
+    /**
+     * Захватывает пачку событий одной неупорядоченной bulk-вставкой.
+     * В пачке не должно быть повторяющихся eventId.
+     */
+    public BatchClaim claimAll(List<CustomerRequestEvent> events) {
+        return claimAll(events, null);
+    }
+
+    /**
+     * Транзакционный вариант {@link #claimAll(List)}: захват помечается исходной записью Topic-1
+     * (topic-partition@offset, по порядку событий). Событие, захваченное той же записью,
+     * перехватывается снова - это повтор после прерванной транзакции, а не дубликат.
+     */
+    public BatchClaim claimAll(List<CustomerRequestEvent> events, List<String> sources) {
+        if (events.isEmpty()) return new BatchClaim(Map.of(), Set.of(), Set.of());
+        return timed("claim-batch", () -> doClaimAll(events, sources));
+    }
+
+    private BatchClaim doClaimAll(List<CustomerRequestEvent> events, List<String> sources) {
+        LocalDateTime claimedAt = now();
+        List<ProcessedEvent> markers = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            ProcessedEvent marker = processingMarker(events.get(i), claimedAt);
+            if (sources != null) marker.setSource(sources.get(i));
+            markers.add(marker);
+        }
+        Set<String> conflicts = new HashSet<>();
+        Set<String> failed = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProcessedEvent.class).insert(markers).execute();
+        } catch (BulkOperationException e) {
+            // unordered: only the reported documents were not inserted
+            e.getErrors().forEach(error -> {
+                String eventId = markers.get(error.getIndex()).getEventId();
+                if (ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY) conflicts.add(eventId);
+                else failed.add(eventId);
+            });
+            if (!failed.isEmpty()) log.error("Failed to claim {} of {} events", failed.size(), events.size());
+        } catch (Exception e) {
+            log.error("Bulk claim of {} events failed: {}", events.size(), e.getMessage());
+            return new BatchClaim(Map.of(), Set.of(), Set.of());
+        }
+
+        // one read tells completed outcomes from live claims of other consumers
+        Map<String, ProcessedEvent> stored = new HashMap<>();
+        if (!conflicts.isEmpty()) {
+            mongoTemplate.find(Query.query(Criteria.where("_id").in(conflicts)), ProcessedEvent.class)
+                    .forEach(existing -> stored.put(existing.getEventId(), existing));
+        }
+        Map<String, Claim> claimed = new HashMap<>();
+        Set<String> duplicates = new HashSet<>();
+        Set<String> inProgress = new HashSet<>();
+        for (ProcessedEvent marker : markers) {
+            String eventId = marker.getEventId();
+            if (failed.contains(eventId)) continue;
+            if (!conflicts.contains(eventId)) {
+                claimed.put(eventId, new Claim(eventId, claimedAt));
+                continue;
+            }
+            Claim replayed = marker.getSource() != null ? takeOverReplayed(eventId, marker.getSource()) : null;
+            ClaimResult result = replayed != null ? ClaimResult.claimed(replayed) : resolveConflict(eventId, stored.get(eventId));
+            switch (result.status()) {
+                case CLAIMED -> claimed.put(eventId, result.claim());
+                case COMPLETED -> duplicates.add(eventId);
+                case IN_PROGRESS -> inProgress.add(eventId);
+            }
+        }
+        return new BatchClaim(claimed, duplicates, inProgress);
+    }
+
+    /**
+     * Записывает итог без предварительного захвата, одной вставкой. Используется, когда решение
+     * принято до любых внешних вызовов и захват на время обработки не нужен.
+     *
+     * @return CLAIMED, если итог записан; иначе исход конфликта, как у {@link #claim}
+     */
+    public ClaimStatus record(ProcessedEvent outcome) {
+        return timed("record", () -> doRecord(outcome));
+    }
+
+    private ClaimStatus doRecord(ProcessedEvent outcome) {
+        try {
+            mongoTemplate.insert(outcome);
+            return ClaimStatus.CLAIMED;
+        } catch (DuplicateKeyException e) {
+            ClaimResult result = resolveConflict(outcome.getEventId(),
+                    mongoTemplate.findById(outcome.getEventId(), ProcessedEvent.class));
+            if (result.status() != ClaimStatus.CLAIMED) return result.status();
+            // lost right after the takeover: someone else holds the event now
+            return complete(result.claim(), outcome) ? ClaimStatus.CLAIMED : ClaimStatus.IN_PROGRESS;
+        }
+    }
+
+    /**
+     * Неблокирующий вариант {@link #record}.
+     */
+    public Mono<ClaimStatus> recordReactive(ProcessedEvent outcome) {
+        return timed("record", reactiveMongoTemplate.insert(outcome)
+                .thenReturn(ClaimStatus.CLAIMED)
+                .onErrorResume(DuplicateKeyException.class, e -> resolveConflictReactive(outcome.getEventId())
+                        .flatMap(result -> result.status() != ClaimStatus.CLAIMED ? Mono.just(result.status())
+                                : completeReactive(result.claim(), outcome)
+                                        .map(completed -> completed ? ClaimStatus.CLAIMED : ClaimStatus.IN_PROGRESS))));
+    }
+
+    /**
+     * Записывает итог обработки.
+     *
+     * @return false, если захват потерян (перехвачен после истечения lease-timeout)
+     */
+    public boolean complete(Claim claim, ProcessedEvent outcome) {
+        boolean completed = timed("complete", () -> mongoTemplate.updateFirst(ownClaim(claim), toUpdate(outcome),
+                ProcessedEvent.class).getMatchedCount() == 1);
+        if (!completed) log.warn("Claim on event {} was lost, outcome not recorded", claim.eventId());
+        return completed;
+    }
+
+    /**
+     * Неблокирующий вариант {@link #complete}.
+     */
+    public Mono<Boolean> completeReactive(Claim claim, ProcessedEvent outcome) {
+        return timed("complete", reactiveMongoTemplate.updateFirst(ownClaim(claim), toUpdate(outcome), ProcessedEvent.class))
+                .map(result -> result.getMatchedCount() == 1)
+                .doOnNext(completed -> {
+                    if (!completed) log.warn("Claim on event {} was lost, outcome not recorded", claim.eventId());
+                });
+    }
+
+    /**
+     * Освобождает захват без итога: событие будет обработано заново при повторной доставке
+     * (например, из retry-топика). Захват, уже перехваченный другим обработчиком, не трогается.
+     */
+    public void release(Claim claim) {
+        timed("release", () -> mongoTemplate.remove(ownClaim(claim), ProcessedEvent.class));
+    }
+
+    /**
+     * Пакетный вариант {@link #release}: одна неупорядоченная bulk-операция. Захваты, итог которых
+     * уже записан, не трогаются.
+     */
+    public void releaseAll(Collection<Claim> claims) {
+        if (claims.isEmpty()) return;
+        timed("release-batch", () -> {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProcessedEvent.class);
+            claims.forEach(claim -> bulk.remove(ownClaim(claim)));
+            return bulk.execute();
+        });
+    }
+
+    /**
+     * Записывает итоги пачки одной неупорядоченной bulk-операцией.
+     *
+     * @return eventId, итог которых записать не удалось (ошибка записи или потерянный захват)
+     */
+    public Set<String> completeAll(List<Completion> completions) {
+        if (completions.isEmpty()) return Set.of();
+        return timed("complete-batch", () -> doCompleteAll(completions));
+    }
+
+    private Set<String> doCompleteAll(List<Completion> completions) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ProcessedEvent.class);
+        completions.forEach(completion -> bulk.updateOne(ownClaim(completion.claim()), toUpdate(completion.outcome())));
+        try {
+            if (bulk.execute().getMatchedCount() == completions.size()) return Set.of();
+            // the bulk result does not say which claims were lost, the stored outcomes do
+            return notRecorded(completions);
+        } catch (BulkOperationException e) {
+            Set<String> failed = new HashSet<>();
+            e.getErrors().forEach(error -> failed.add(completions.get(error.getIndex()).claim().eventId()));
+            if (e.getResult().getMatchedCount() + failed.size() < completions.size()) failed.addAll(notRecorded(completions));
+            log.error("Failed to record outcome of {} of {} events", failed.size(), completions.size());
+            return failed;
+        } catch (Exception e) {
+            log.error("Bulk completion of {} events failed: {}", completions.size(), e.getMessage());
+            return completions.stream().map(completion -> completion.claim().eventId()).collect(Collectors.toSet());
+        }
+    }
+
+    private Set<String> notRecorded(List<Completion> completions) {
+        Map<String, ProcessedEvent> expected = new HashMap<>();
+        completions.forEach(completion -> expected.put(completion.claim().eventId(), completion.outcome()));
+        Set<String> missing = new HashSet<>(expected.keySet());
+        mongoTemplate.find(Query.query(Criteria.where("_id").in(expected.keySet())), ProcessedEvent.class)
+                .forEach(stored -> {
+                    ProcessedEvent outcome = expected.get(stored.getEventId());
+                    if (stored.getResult() == outcome.getResult()
+                            && outcome.getProcessedAt().truncatedTo(ChronoUnit.MILLIS).equals(stored.getProcessedAt())) {
+                        missing.remove(stored.getEventId());
+                    }
+                });
+        missing.forEach(eventId -> log.warn("Claim on event {} was lost, outcome not recorded", eventId));
+        return missing;
+    }
+
+    private <T> T timed(String operation, Supplier<T> call) {
+        return mongoTimer(operation).record(call);
+    }
+
+    private <T> Mono<T> timed(String operation, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call.doFinally(signal -> sample.stop(mongoTimer(operation)));
+        });
+    }
+
+    private Timer mongoTimer(String operation) {
+        return mongoTimers.computeIfAbsent(operation, this::buildMongoTimer);
+    }
+
+    private Timer buildMongoTimer(String operation) {
+        return Timer.builder("moderation.mongo")
+                .description("processed_events writes, stale claim takeover included")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    // Decides a conflicting insert by the stored document: a recorded outcome is a duplicate, a live claim
+    // belongs to another consumer, an expired one is taken over. A document gone meanwhile (claim released)
+    // is reported in progress too: the redelivery claims the event anew
+    private ClaimResult resolveConflict(String eventId, ProcessedEvent stored) {
+        if (stored != null && stored.getResult() != ProcessedEvent.ProcessingResult.PROCESSING) {
+            return ClaimResult.of(ClaimStatus.COMPLETED);
+        }
+        if (stored == null || !isExpired(stored)) return ClaimResult.of(ClaimStatus.IN_PROGRESS);
+        LocalDateTime takenAt = now();
+        boolean takenOver = mongoTemplate.updateFirst(staleClaim(eventId, takenAt),
+                Update.update("processedAt", takenAt), ProcessedEvent.class).getModifiedCount() == 1;
+        return takenOver ? ClaimResult.claimed(takenOver(eventId, takenAt)) : ClaimResult.of(ClaimStatus.IN_PROGRESS);
+    }
+
+    private Mono<ClaimResult> resolveConflictReactive(String eventId) {
+        return reactiveMongoTemplate.findById(eventId, ProcessedEvent.class)
+                .flatMap(stored -> {
+                    if (stored.getResult() != ProcessedEvent.ProcessingResult.PROCESSING) {
+                        return Mono.just(ClaimResult.of(ClaimStatus.COMPLETED));
+                    }
+                    if (!isExpired(stored)) return Mono.just(ClaimResult.of(ClaimStatus.IN_PROGRESS));
+                    LocalDateTime takenAt = now();
+                    return reactiveMongoTemplate.updateFirst(staleClaim(eventId, takenAt),
+                                    Update.update("processedAt", takenAt), ProcessedEvent.class)
+                            .map(result -> result.getModifiedCount() == 1
+                                    ? ClaimResult.claimed(takenOver(eventId, takenAt))
+                                    : ClaimResult.of(ClaimStatus.IN_PROGRESS));
+                })
+                .defaultIfEmpty(ClaimResult.of(ClaimStatus.IN_PROGRESS));
+    }
+
+    private boolean isExpired(ProcessedEvent claim) {
+        return claim.getProcessedAt().isBefore(now().minus(leaseTimeout));
+    }
+
+    private Claim takeOverReplayed(String eventId, String source) {
+        LocalDateTime takenAt = now();
+        boolean takenOver = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(eventId).and("source").is(source)),
+                new Update().set("result", ProcessedEvent.ProcessingResult.PROCESSING).set("processedAt", takenAt),
+                ProcessedEvent.class).getMatchedCount() == 1;
+        if (!takenOver) return null;
+        log.warn("Re-claimed event {} replayed from {} after an aborted transaction", eventId, source);
+        return new Claim(eventId, takenAt);
+    }
+
+    private Claim takenOver(String eventId, LocalDateTime takenAt) {
+        log.warn("Took over stale claim on event {}", eventId);
+        return new Claim(eventId, takenAt);
+    }
+
+    private Query staleClaim(String eventId, LocalDateTime now) {
+        return Query.query(Criteria.where("_id").is(eventId)
+                .and("result").is(ProcessedEvent.ProcessingResult.PROCESSING)
+                .and("processedAt").lt(now.minus(leaseTimeout)));
+    }
+
+    private Query ownClaim(Claim claim) {
+        return Query.query(Criteria.where("_id").is(claim.eventId())
+                .and("result").is(ProcessedEvent.ProcessingResult.PROCESSING)
+                .and("processedAt").is(claim.claimedAt()));
+    }
+
+    private ProcessedEvent processingMarker(CustomerRequestEvent event, LocalDateTime claimedAt) {
+        return ProcessedEvent.builder()
+                .eventId(event.getEventId())
+                .customerId(event.getCustomerId())
+                .category(event.getCategory())
+                .result(ProcessedEvent.ProcessingResult.PROCESSING)
+                .processedAt(claimedAt)
+                .expireAt(claimedAt.plus(retention))
+                .build();
+    }
+
+    private static Update toUpdate(ProcessedEvent outcome) {
+        return new Update()
+                .set("customerId", outcome.getCustomerId())
+                .set("category", outcome.getCategory())
+                .set("result", outcome.getResult())
+                .set("rejectionReason", outcome.getRejectionReason())
+                .set("processedAt", outcome.getProcessedAt())
+                .set("expireAt", outcome.getExpireAt());
+    }
+
+    // MongoDB keeps milliseconds; the claim token must compare equal after a round trip
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
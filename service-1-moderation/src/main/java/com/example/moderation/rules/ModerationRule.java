@@ -51,4 +51,51 @@ public interface ModerationRule {
     default boolean isEnabled() {
         return true;
     }
+    
+    /**
+     * Возвращает класс стоимости правила: CPU-правила выполняются раньше IO-правил.
+     * 
+     * @return класс стоимости правила
+     */
+    default RuleCost getCost() {
+        return RuleCost.CPU;
+    }
+    
+    /**
+     * Нужны ли правилу данные обогащения. Такие правила выполняются последними,
+     * и Service-2 вызывается, только если событие дошло до них.
+     * 
+     * @return true если правило использует EnrichmentData
+     */
+    default boolean requiresEnrichment() {
+        return false;
+    }
+    
+    /**
+     * Можно ли переставлять правило внутри его стадии по наблюдаемой статистике отклонений.
+     * Правила, порядок которых важен (например, определяющие причину отклонения), остаются закреплёнными.
+     * 
+     * @return true если правило можно переставлять
+     */
+    default boolean isCommutable() {
+        return false;
+    }
+    
+    /**
+     * Можно ли выполнять правило одновременно с другими правилами того же события
+     * (в режиме параллельной проверки). Такое правило не должно иметь побочных эффектов
+     * и зависеть от того, что предыдущие правила уже пройдены.
+     * 
+     * @return true если правило независимо
+     */
+    default boolean isIndependent() {
+        return false;
+    }
+    
+    /**
+     * Пересобирает данные, предвычисленные из конфигурации (множества категорий и т.п.).
+     * Вызывается движком при перестроении плана проверки после изменения конфигурации.
+     */
+    default void refresh() {
+    }
 }
@@ -0,0 +1,20 @@
+package com.example.moderation.rules;
+
+/**
+ * Класс стоимости правила модерации.
+ * 
+ * Движок выполняет дешёвые правила раньше дорогих: отклонение локальным правилом
+ * избавляет событие от обращений к базе данных и Service-2.
+ */
+public enum RuleCost {
+    
+    /**
+     * Вычисление в памяти, без ввода-вывода
+     */
+    CPU,
+    
+    /**
+     * Обращение к внешнему хранилищу или сервису
+     */
+    IO
+}
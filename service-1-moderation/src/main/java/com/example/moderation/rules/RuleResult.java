@@ -2,17 +2,16 @@ package com.example.moderation.rules;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
 /**
  * Результат применения правила модерации.
  * 
- * Использует паттерн Value Object для неизменяемого представления результата.
+ * Использует паттерн Value Object для неизменяемого представления результата:
+ * экземпляры можно разделять, правила возвращают общий успешный результат без аллокаций.
  */
-@Data
+@Value
 @Builder
-@NoArgsConstructor
 @AllArgsConstructor
 public class RuleResult {
     
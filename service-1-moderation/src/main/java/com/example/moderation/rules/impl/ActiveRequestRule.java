@@ -5,54 +5,73 @@ import com.example.moderation.model.CustomerRequestEvent;
 import com.example.moderation.model.EnrichmentData;
 import com.example.moderation.rules.ModerationRule;
 import com.example.moderation.rules.RuleResult;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
-// Checks if customer has active requests in same category
+// Checks if customer has active requests in same category.
+// Config is compiled into an immutable snapshot on construction and on refresh().
 @Slf4j
 @Component
 @Order(2)
-@RequiredArgsConstructor
 public class ActiveRequestRule implements ModerationRule {
     
-    private final ModerationRulesConfig rulesConfig;
     private static final String RULE_NAME = "ACTIVE_REQUEST_CHECK";
+    private static final RuleResult PASSED = RuleResult.passed(RULE_NAME);
+    private static final Set<EnrichmentData.RequestStatus> ACTIVE_STATUSES = EnumSet.of(
+            EnrichmentData.RequestStatus.OPEN,
+            EnrichmentData.RequestStatus.IN_PROGRESS,
+            EnrichmentData.RequestStatus.PENDING);
+    
+    private final ModerationRulesConfig rulesConfig;
+    private volatile Settings settings;
+    
+    private record Settings(boolean enabled, Set<String> multipleActiveCategories, int maxActive) {
+    }
+    
+    public ActiveRequestRule(ModerationRulesConfig rulesConfig) {
+        this.rulesConfig = rulesConfig;
+        refresh();
+    }
+    
+    @Override
+    public void refresh() {
+        ModerationRulesConfig config = rulesConfig.snapshot();
+        settings = new Settings(config.isActiveRequestsCheckEnabled(),
+                config.getAllowMultipleActiveCategories() != null
+                        ? Set.copyOf(config.getAllowMultipleActiveCategories()) : Set.of(),
+                config.getMaxActiveRequestsPerCategory());
+    }
     
     @Override
     public RuleResult apply(CustomerRequestEvent event, EnrichmentData enrichmentData) {
-        if (!rulesConfig.isActiveRequestsCheckEnabled()) return RuleResult.passed(RULE_NAME);
-        if (enrichmentData == null || !enrichmentData.isDataAvailable()) return RuleResult.passed(RULE_NAME);
-        
-        List<String> allowedCategories = rulesConfig.getAllowMultipleActiveCategories();
-        if (allowedCategories != null && allowedCategories.contains(event.getCategory())) {
-            return RuleResult.passed(RULE_NAME);
-        }
+        Settings current = settings;
+        if (!current.enabled()) return PASSED;
+        if (enrichmentData == null || !enrichmentData.isDataAvailable()) return PASSED;
+        if (event.getCategory() != null && current.multipleActiveCategories().contains(event.getCategory())) return PASSED;
         
         List<EnrichmentData.ActiveRequest> activeRequests = enrichmentData.getActiveRequests();
-        if (activeRequests == null || activeRequests.isEmpty()) return RuleResult.passed(RULE_NAME);
+        if (activeRequests == null || activeRequests.isEmpty()) return PASSED;
         
-        long sameCategoryCount = activeRequests.stream()
-                .filter(req -> req.getCategory().equalsIgnoreCase(event.getCategory()))
-                .filter(req -> isActiveStatus(req.getStatus()))
-                .count();
+        int sameCategoryCount = 0;
+        for (int i = 0; i < activeRequests.size(); i++) {
+            EnrichmentData.ActiveRequest request = activeRequests.get(i);
+            if (request.getCategory().equalsIgnoreCase(event.getCategory())
+                    && request.getStatus() != null && ACTIVE_STATUSES.contains(request.getStatus())) {
+                sameCategoryCount++;
+            }
+        }
         
-        int maxActive = rulesConfig.getMaxActiveRequestsPerCategory();
-        if (sameCategoryCount >= maxActive) {
+        if (sameCategoryCount >= current.maxActive()) {
             return RuleResult.rejected(RULE_NAME, "Active request already exists in this category",
                     String.format("Found %d active request(s)", sameCategoryCount));
         }
         
-        return RuleResult.passed(RULE_NAME);
-    }
-    
-    private boolean isActiveStatus(EnrichmentData.RequestStatus status) {
-        return status == EnrichmentData.RequestStatus.OPEN 
-                || status == EnrichmentData.RequestStatus.IN_PROGRESS
-                || status == EnrichmentData.RequestStatus.PENDING;
+        return PASSED;
     }
     
     @Override
@@ -61,8 +80,17 @@ public class ActiveRequestRule implements ModerationRule {
     @Override
     public int getPriority() { return 2; }
     
+    @Override
+    public boolean requiresEnrichment() { return true; }
+    
+    @Override
+    public boolean isCommutable() { return true; }
+    
+    @Override
+    public boolean isIndependent() { return true; }
+    
     @Override
     public boolean isEnabled() {
-        return rulesConfig.isActiveRequestsCheckEnabled();
+        return settings.enabled();
     }
 }
@@ -5,12 +5,16 @@ import com.example.moderation.model.EnrichmentData;
 import com.example.moderation.model.ProcessedEvent;
 import com.example.moderation.repository.ProcessedEventRepository;
 import com.example.moderation.rules.ModerationRule;
+import com.example.moderation.rules.RuleCost;
 import com.example.moderation.rules.RuleResult;
+import com.example.moderation.service.ProcessedEventFilter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+
 // Checks if event was already processed (idempotency)
 @Slf4j
 @Component
@@ -18,15 +22,30 @@ import org.springframework.stereotype.Component;
 @RequiredArgsConstructor
 public class DuplicateEventRule implements ModerationRule {
     
+    public static final String RULE_NAME = "DUPLICATE_EVENT_CHECK";
+    private static final RuleResult PASSED = RuleResult.passed(RULE_NAME);
+    private static final RuleResult REJECTED = RuleResult.rejected(RULE_NAME, "Event already processed");
+    private static final Map<String, RuleResult> PRECOMPUTED_NEW = Map.of(RULE_NAME, PASSED);
+    private static final Map<String, RuleResult> PRECOMPUTED_DUPLICATE = Map.of(RULE_NAME, REJECTED);
+    
     private final ProcessedEventRepository processedEventRepository;
-    private static final String RULE_NAME = "DUPLICATE_EVENT_CHECK";
+    private final ProcessedEventFilter processedEventFilter;
     
     @Override
     public RuleResult apply(CustomerRequestEvent event, EnrichmentData enrichmentData) {
-        if (processedEventRepository.existsByEventId(event.getEventId())) {
-            return RuleResult.rejected(RULE_NAME, "Event already processed");
-        }
-        return RuleResult.passed(RULE_NAME);
+        // MongoDB is asked only for IDs the in-memory filter has not seen saved
+        return result(processedEventFilter.check(event.getEventId()) == ProcessedEventFilter.Answer.PROCESSED
+                || processedEventRepository.existsByEventId(event.getEventId()));
+    }
+    
+    // Shared with callers that resolve duplicates in bulk (batch consumer)
+    public static RuleResult result(boolean alreadyProcessed) {
+        return alreadyProcessed ? REJECTED : PASSED;
+    }
+    
+    // Shared precomputed-results maps for ModerationRulesEngine.evaluate, no allocation per event
+    public static Map<String, RuleResult> precomputed(boolean alreadyProcessed) {
+        return alreadyProcessed ? PRECOMPUTED_DUPLICATE : PRECOMPUTED_NEW;
     }
     
     @Override
@@ -34,4 +53,10 @@ public class DuplicateEventRule implements ModerationRule {
     
     @Override
     public int getPriority() { return 1; }
+    
+    @Override
+    public RuleCost getCost() { return RuleCost.IO; }
+    
+    @Override
+    public boolean isIndependent() { return true; }
 }
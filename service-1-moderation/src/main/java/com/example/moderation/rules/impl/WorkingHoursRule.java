@@ -5,7 +5,6 @@ import com.example.moderation.model.CustomerRequestEvent;
 import com.example.moderation.model.EnrichmentData;
 import com.example.moderation.rules.ModerationRule;
 import com.example.moderation.rules.RuleResult;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
@@ -13,47 +12,62 @@ import org.springframework.stereotype.Component;
 import java.time.DayOfWeek;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.List;
+import java.util.EnumSet;
+import java.util.Set;
 
-// Checks if request is within working hours for specific categories
+// Checks if request is within working hours for specific categories.
+// Config is compiled into an immutable snapshot on construction and on refresh().
 @Slf4j
 @Component
 @Order(3)
-@RequiredArgsConstructor
 public class WorkingHoursRule implements ModerationRule {
     
-    private final ModerationRulesConfig rulesConfig;
     private static final String RULE_NAME = "WORKING_HOURS_CHECK";
+    private static final RuleResult PASSED = RuleResult.passed(RULE_NAME);
+    private static final Set<DayOfWeek> WEEKEND = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+    
+    private final ModerationRulesConfig rulesConfig;
+    private volatile Settings settings;
+    
+    private record Settings(boolean enabled, Set<String> restrictedCategories, LocalTime start, LocalTime end) {
+    }
+    
+    public WorkingHoursRule(ModerationRulesConfig rulesConfig) {
+        this.rulesConfig = rulesConfig;
+        refresh();
+    }
+    
+    @Override
+    public void refresh() {
+        ModerationRulesConfig config = rulesConfig.snapshot();
+        settings = new Settings(config.isWorkingHoursCheckEnabled(),
+                config.getWorkingHoursCategories() != null ? Set.copyOf(config.getWorkingHoursCategories()) : Set.of(),
+                config.getWorkingHoursStart(),
+                config.getWorkingHoursEnd());
+    }
     
     @Override
     public RuleResult apply(CustomerRequestEvent event, EnrichmentData enrichmentData) {
-        if (!rulesConfig.isWorkingHoursCheckEnabled()) return RuleResult.passed(RULE_NAME);
-        
-        List<String> restrictedCategories = rulesConfig.getWorkingHoursCategories();
-        if (restrictedCategories == null || !restrictedCategories.contains(event.getCategory())) {
-            return RuleResult.passed(RULE_NAME);
-        }
+        Settings current = settings;
+        if (!current.enabled()) return PASSED;
+        if (event.getCategory() == null || !current.restrictedCategories().contains(event.getCategory())) return PASSED;
         
         LocalDateTime eventTime = event.getTimestamp() != null ? event.getTimestamp() : LocalDateTime.now();
         
-        if (!isWithinWorkingHours(eventTime)) {
+        if (!isWithinWorkingHours(eventTime, current)) {
             return RuleResult.rejected(RULE_NAME, "Request received outside working hours",
                     String.format("Time: %s, Working hours: %s-%s", 
-                            eventTime.toLocalTime(),
-                            rulesConfig.getWorkingHoursStart(),
-                            rulesConfig.getWorkingHoursEnd()));
+                            eventTime.toLocalTime(), current.start(), current.end()));
         }
         
-        return RuleResult.passed(RULE_NAME);
+        return PASSED;
     }
     
-    private boolean isWithinWorkingHours(LocalDateTime dateTime) {
-        DayOfWeek dayOfWeek = dateTime.getDayOfWeek();
-        if (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) return false;
+    private boolean isWithinWorkingHours(LocalDateTime dateTime, Settings current) {
+        if (WEEKEND.contains(dateTime.getDayOfWeek())) return false;
         
         LocalTime time = dateTime.toLocalTime();
-        return !time.isBefore(rulesConfig.getWorkingHoursStart()) 
-                && !time.isAfter(rulesConfig.getWorkingHoursEnd());
+        return !time.isBefore(current.start()) && !time.isAfter(current.end());
     }
     
     @Override
@@ -63,5 +77,11 @@ public class WorkingHoursRule implements ModerationRule {
     public int getPriority() { return 3; }
     
     @Override
-    public boolean isEnabled() { return rulesConfig.isWorkingHoursCheckEnabled(); }
+    public boolean isCommutable() { return true; }
+    
+    @Override
+    public boolean isIndependent() { return true; }
+    
+    @Override
+    public boolean isEnabled() { return settings.enabled(); }
 }
@@ -0,0 +1,203 @@
+package com.example.moderation.service;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// Adaptive limit on concurrent calls, gradient style (after Netflix concurrency-limits' Gradient2).
+// Every completed call is an RTT sample. While the short-term RTT stays within tolerance of the long-term
+// average the limit grows by about sqrt(limit) per step; once queueing shows up in the RTT it shrinks by
+// their ratio. A failed call cuts the limit multiplicatively (AIMD). Calls over the limit wait in a bounded
+// FIFO queue for up to maxQueueWait, beyond that they are shed with LimitExceededException.
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_RTT_ALPHA = 2.0 / (10 + 1);
+    private static final double LONG_RTT_ALPHA = 2.0 / (500 + 1);
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final int maxQueue;
+    private final Duration maxQueueWait;
+    private final Predicate<Throwable> ignoredError;
+    private final Consumer<String> onShed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    // written under the lock, read without it by the gauges
+    private volatile double limit;
+    private volatile int inFlight;
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    // ignoredError: failures that say nothing about the callee (breaker rejections) - no RTT sample, no cut;
+    // onShed is told the reason of every shed call: queue-full or queue-timeout
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double rttTolerance,
+                                      double smoothing, int maxQueue, Duration maxQueueWait,
+                                      Predicate<Throwable> ignoredError, Consumer<String> onShed) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        this.maxQueue = maxQueue;
+        this.maxQueueWait = maxQueueWait;
+        this.ignoredError = ignoredError;
+        this.onShed = onShed;
+    }
+
+    public static class LimitExceededException extends RuntimeException {
+        public LimitExceededException(String message) { super(message); }
+    }
+
+    public <T> Mono<T> run(Mono<T> call) {
+        return acquire().flatMap(permit -> call
+                .doOnSuccess(result -> permit.release(true, false))
+                .doOnError(error -> {
+                    boolean sample = !ignoredError.test(error);
+                    permit.release(sample, sample);
+                })
+                .doOnCancel(() -> permit.release(false, false)));
+    }
+
+    public double getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+                    Permit granted = null;
+                    Waiter waiter = null;
+                    boolean full = false;
+                    lock.lock();
+                    try {
+                        if (waiters.isEmpty() && inFlight < (int) limit) {
+                            granted = newPermit();
+                        } else if (waiters.size() >= maxQueue) {
+                            full = true;
+                        } else {
+                            waiter = new Waiter(sink);
+                            waiters.addLast(waiter);
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                    if (granted != null) {
+                        sink.success(granted);
+                    } else if (full) {
+                        onShed.accept("queue-full");
+                        sink.error(new LimitExceededException("Concurrency limit " + (int) limit + " reached, queue full"));
+                    } else {
+                        Waiter queued = waiter;
+                        sink.onCancel(() -> cancel(queued));
+                    }
+                })
+                .timeout(maxQueueWait, Mono.defer(() -> {
+                    onShed.accept("queue-timeout");
+                    return Mono.error(new LimitExceededException("No permit within " + maxQueueWait.toMillis() + " ms"));
+                }));
+    }
+
+    // A waiter cancelled (queue timeout) after a permit was handed to it gives the permit back
+    private void cancel(Waiter waiter) {
+        Permit granted;
+        lock.lock();
+        try {
+            if (waiters.remove(waiter)) return;
+            granted = waiter.permit;
+        } finally {
+            lock.unlock();
+        }
+        if (granted != null) granted.release(false, false);
+    }
+
+    private void onRelease(Permit permit, boolean sample, boolean drop) {
+        List<Waiter> ready = new ArrayList<>();
+        lock.lock();
+        try {
+            inFlight--;
+            if (sample) update(System.nanoTime() - permit.startNanos, drop, permit.inFlightAtStart);
+            while (!waiters.isEmpty() && inFlight < (int) limit) {
+                Waiter waiter = waiters.pollFirst();
+                waiter.permit = newPermit();
+                ready.add(waiter);
+            }
+        } finally {
+            lock.unlock();
+        }
+        // outside the lock: success starts the waiting call on this thread
+        ready.forEach(waiter -> waiter.sink.success(waiter.permit));
+    }
+
+    private void update(long rttNanos, boolean drop, int inFlightAtStart) {
+        if (drop) {
+            limit = Math.max(minLimit, limit * DROP_BACKOFF);
+            return;
+        }
+        shortRttNanos = shortRttNanos == 0 ? rttNanos : shortRttNanos + (rttNanos - shortRttNanos) * SHORT_RTT_ALPHA;
+        longRttNanos = longRttNanos == 0 ? rttNanos : longRttNanos + (rttNanos - longRttNanos) * LONG_RTT_ALPHA;
+        // after a lasting RTT improvement the long-term average has to catch up quickly
+        if (longRttNanos / shortRttNanos > 2) longRttNanos *= 0.95;
+        // too few calls in flight to say anything about the callee's capacity
+        if (inFlightAtStart < limit / 2) return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - smoothing) + newLimit * smoothing));
+    }
+
+    // caller holds the lock
+    private Permit newPermit() {
+        inFlight++;
+        return new Permit(inFlight);
+    }
+
+    private final class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        void release(boolean sample, boolean drop) {
+            if (released.compareAndSet(false, true)) onRelease(this, sample, drop);
+        }
+    }
+
+    private static final class Waiter {
+
+        private final MonoSink<Permit> sink;
+        private Permit permit;
+
+        Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+}
@@ -1,63 +1,294 @@
 package com.example.moderation.service;
 
+import com.example.moderation.exception.GlobalExceptionHandler;
 import com.example.moderation.model.CustomerRequestEvent;
 import com.example.moderation.model.EnrichmentData;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Recover;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class EnrichmentClientService {
     
+    private static final String CUSTOMER_PATH = "/api/v1/enrichment/customer/{customerId}";
+    private static final String BATCH_PATH = "/api/v1/enrichment/customers:batch";
+    // Resilience4j instance name of the circuit breaker and bulkhead (resilience4j.*.instances in application.yaml)
+    private static final String SERVICE_2 = "service-2";
+    
     private final WebClient webClient;
+    private final EnrichmentInstanceBalancer balancer;
+    private final EnrichmentNearCache nearCache;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final ModerationMetrics metrics;
+    
+    @Value("${enrichment.batch.concurrency:4}")
+    private int batchConcurrency;
+    
+    @Value("${enrichment.batch.max-size:100}")
+    private int batchMaxSize;
+    
+    @Value("${enrichment.batch.coalescing-enabled:false}")
+    private boolean coalescingEnabled;
+    
+    @Value("${enrichment.batch.coalescing-window:5}")
+    private long coalescingWindowMs;
+    
+    @Value("${enrichment.limiter.enabled:true}")
+    private boolean limiterEnabled;
+    
+    @Value("${enrichment.limiter.initial-limit:16}")
+    private int limiterInitialLimit;
+    
+    @Value("${enrichment.limiter.min-limit:4}")
+    private int limiterMinLimit;
+    
+    @Value("${enrichment.limiter.max-limit:64}")
+    private int limiterMaxLimit;
+    
+    @Value("${enrichment.limiter.rtt-tolerance:1.5}")
+    private double limiterRttTolerance;
+    
+    @Value("${enrichment.limiter.smoothing:0.2}")
+    private double limiterSmoothing;
+    
+    @Value("${enrichment.limiter.max-queue:1000}")
+    private int limiterMaxQueue;
+    
+    @Value("${enrichment.limiter.max-queue-wait:2s}")
+    private Duration limiterMaxQueueWait;
+    
+    @Value("${enrichment.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+    
+    @Value("${enrichment.hedging.percentile:0.95}")
+    private double hedgingPercentile;
+    
+    @Value("${enrichment.hedging.min-delay:20ms}")
+    private Duration hedgingMinDelay;
+    
+    @Value("${enrichment.hedging.max-delay:1s}")
+    private Duration hedgingMaxDelay;
+    
+    @Value("${enrichment.hedging.budget-ratio:0.05}")
+    private double hedgingBudgetRatio;
+    
+    @Value("${enrichment.hedging.budget-burst:10}")
+    private int hedgingBudgetBurst;
+    
+    @Value("${enrichment.retry.max-attempts:3}")
+    private int maxAttempts;
+    
+    @Value("${enrichment.retry.initial-backoff:1000}")
+    private long initialBackoffMs;
+    
+    @Value("${enrichment.retry.jitter:0.5}")
+    private double retryJitter;
+    
+    private EnrichmentRequestCoalescer coalescer;
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private final LongAdder bulkheadRejected = new LongAdder();
+    private AdaptiveConcurrencyLimiter limiter;
+    private RequestHedger hedger;
+    
+    @PostConstruct
+    void init() {
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker(SERVICE_2);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            log.warn("Service-2 circuit breaker {}", event.getStateTransition());
+            metrics.circuitBreakerTransition(event.getStateTransition().getFromState().name(),
+                    event.getStateTransition().getToState().name());
+        });
+        bulkhead = bulkheadRegistry.bulkhead(SERVICE_2);
+        bulkhead.getEventPublisher().onCallRejected(event -> {
+            bulkheadRejected.increment();
+            metrics.bulkheadRejected();
+        });
+        if (limiterEnabled) {
+            limiter = new AdaptiveConcurrencyLimiter(limiterInitialLimit, limiterMinLimit, limiterMaxLimit,
+                    limiterRttTolerance, limiterSmoothing, limiterMaxQueue, limiterMaxQueueWait,
+                    EnrichmentClientService::isRejected, metrics::limiterShed);
+            metrics.registerLimiter(limiter);
+        }
+        if (hedgingEnabled) {
+            hedger = new RequestHedger(hedgingPercentile, hedgingMinDelay, hedgingMaxDelay,
+                    hedgingBudgetRatio, hedgingBudgetBurst, metrics::hedge);
+            metrics.registerHedger(hedger);
+            log.info("Hedged Service-2 lookups enabled: p{} delay within {}..{}, budget {}",
+                    hedgingPercentile * 100, hedgingMinDelay, hedgingMaxDelay, hedgingBudgetRatio);
+        }
+        
+        if (coalescingEnabled) {
+            coalescer = new EnrichmentRequestCoalescer(this::requestBatch,
+                    customerId -> createEmptyEnrichmentData(customerId, "No data from Service-2"),
+                    batchMaxSize, Duration.ofMillis(coalescingWindowMs));
+            nearCache.addInvalidationListener(coalescer);
+            log.info("Enrichment request coalescing enabled: maxBatchSize={}, window={}ms",
+                    batchMaxSize, coalescingWindowMs);
+        }
+    }
     
-    @Retryable(
-            retryFor = {WebClientException.class, RuntimeException.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
+    // Record consumer path: one attempt, no sleeping on the listener thread. A failure is thrown,
+    // and the consumer parks the event on a retry topic, so healthy events keep flowing meanwhile
     public EnrichmentData getEnrichmentData(CustomerRequestEvent event) {
         log.debug("Calling Service-2 for customer: {}", event.getCustomerId());
         
         try {
-            EnrichmentData result = webClient.get()
-                    .uri("/api/v1/enrichment/customer/{customerId}", event.getCustomerId())
-                    .retrieve()
-                    .bodyToMono(EnrichmentData.class)
-                    .timeout(Duration.ofSeconds(5))
-                    .block();
+            EnrichmentData result = lookup(event.getCustomerId()).block();
             
             return result != null ? result : 
                     createEmptyEnrichmentData(event.getCustomerId(), "No data from Service-2");
         } catch (Exception e) {
-            log.error("Failed to get enrichment data: {}", e.getMessage());
-            throw new RuntimeException("Enrichment service call failed", e);
+            Throwable cause = Exceptions.unwrap(e);
+            // breaker open or bulkhead full: decide right away on the degraded data instead of parking the event
+            if (isRejected(cause)) return createEmptyEnrichmentData(event.getCustomerId(), "Service-2 unavailable: " + cause.getMessage());
+            log.warn("Service-2 call for customer {} failed: {}", event.getCustomerId(), e.getMessage());
+            throw new GlobalExceptionHandler.EnrichmentServiceException("Service-2 unavailable: " + e.getMessage(), e);
         }
     }
     
+    // Non-blocking lookup: retries are scheduled on timers, no thread is parked during backoff
     public Mono<EnrichmentData> getEnrichmentDataAsync(String customerId) {
-        return webClient.get()
-                .uri("/api/v1/enrichment/customer/{customerId}", customerId)
+        return lookup(customerId)
+                .retryWhen(retrySpec())
+                .onErrorResume(error -> Mono.just(createEmptyEnrichmentData(customerId,
+                        "Service-2 unavailable: " + error.getMessage())))
+                .defaultIfEmpty(createEmptyEnrichmentData(customerId, "No data from Service-2"));
+    }
+    
+    // Batch consumer path: cached customers are served locally, the rest go to the bulk endpoint in chunks
+    public Map<String, EnrichmentData> getEnrichmentDataBatch(Collection<String> customerIds) {
+        List<String> distinctIds = List.copyOf(new LinkedHashSet<>(customerIds));
+        log.debug("Calling Service-2 for {} customers", distinctIds.size());
+        
+        Map<String, EnrichmentData> result = new HashMap<>(nearCache.getAll(distinctIds, this::requestBatchChunked)
+                .onErrorResume(error -> {
+                    log.error("Batch enrichment for {} customers failed: {}", distinctIds.size(), error.getMessage());
+                    Map<String, EnrichmentData> fallback = new HashMap<>();
+                    distinctIds.forEach(id -> fallback.put(id,
+                            createEmptyEnrichmentData(id, "Service-2 unavailable: " + error.getMessage())));
+                    return Mono.just(fallback);
+                })
+                .block());
+        distinctIds.forEach(id -> result.computeIfAbsent(id,
+                missing -> createEmptyEnrichmentData(missing, "No data from Service-2")));
+        return result;
+    }
+    
+    // Cache -> coalescer -> Service-2; errors propagate so that nothing but real responses is cached
+    private Mono<EnrichmentData> lookup(String customerId) {
+        return nearCache.get(customerId, id -> coalescer != null ? coalescer.lookup(id) : requestEnrichment(id));
+    }
+    
+    // Single lookups may be hedged; bulk calls are not, a second copy of a large POST costs too much
+    // The instance is chosen per subscription, so a retry may land on another instance
+    private Mono<EnrichmentData> requestEnrichment(String customerId) {
+        return Mono.defer(() -> {
+            EnrichmentInstanceBalancer.Instance instance = balancer.choose(customerId, null);
+            if (hedger == null) return requestEnrichment(customerId, instance);
+            // each attempt passes the limiter, bulkhead and breaker on its own; the losing one is cancelled
+            return hedger.run(attempt -> requestEnrichment(customerId,
+                    attempt == 0 ? instance : balancer.choose(customerId, instance)));
+        });
+    }
+    
+    private Mono<EnrichmentData> requestEnrichment(String customerId, EnrichmentInstanceBalancer.Instance instance) {
+        return balancer.call(instance, url -> guarded(webClient.get()
+                .uri(url + CUSTOMER_PATH, customerId)
                 .retrieve()
                 .bodyToMono(EnrichmentData.class)
-                .timeout(Duration.ofSeconds(5))
-                .onErrorResume(error -> Mono.just(createEmptyEnrichmentData(customerId, error.getMessage())));
+                .timeout(Duration.ofSeconds(5))));
+    }
+    
+    private Mono<Map<String, EnrichmentData>> requestBatchChunked(List<String> customerIds) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < customerIds.size(); i += batchMaxSize) {
+            chunks.add(customerIds.subList(i, Math.min(i + batchMaxSize, customerIds.size())));
+        }
+        return Flux.fromIterable(chunks)
+                .flatMap(chunk -> requestBatch(chunk).retryWhen(retrySpec()), batchConcurrency)
+                .collect(HashMap::new, Map::putAll);
+    }
+    
+    // One POST for many customers
+    private Mono<Map<String, EnrichmentData>> requestBatch(List<String> customerIds) {
+        return Mono.defer(() -> balancer.call(balancer.choose(null, null), url -> guarded(webClient.post()
+                .uri(url + BATCH_PATH)
+                .bodyValue(Map.of("customerIds", customerIds))
+                .retrieve()
+                .bodyToFlux(EnrichmentData.class)
+                .collectMap(EnrichmentData::getCustomerId)
+                .timeout(Duration.ofSeconds(5)))));
+    }
+    
+    // Every call that reaches Service-2 (cache hits do not): the adaptive limiter queues calls over the limit
+    // Service-2 currently sustains and sheds the excess, the bulkhead is the hard cap on calls in flight,
+    // the breaker records outcomes and, while open, fails calls at once with CallNotPermittedException
+    private <T> Mono<T> guarded(Mono<T> call) {
+        Mono<T> protectedCall = call.transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+        return limiter != null ? limiter.run(protectedCall) : protectedCall;
+    }
+    
+    private static boolean isRejected(Throwable error) {
+        return error instanceof CallNotPermittedException || error instanceof BulkheadFullException;
+    }
+    
+    // Breaker, bulkhead and instance state for the health endpoint
+    public Map<String, Object> resilienceState() {
+        CircuitBreaker.Metrics breaker = circuitBreaker.getMetrics();
+        return Map.of(
+                "instances", balancer.state(),
+                "circuitBreaker", circuitBreaker.getState().name(),
+                "failureRate", breaker.getFailureRate(),
+                "slowCallRate", breaker.getSlowCallRate(),
+                "notPermittedCalls", breaker.getNumberOfNotPermittedCalls(),
+                "bulkheadAvailableCalls", bulkhead.getMetrics().getAvailableConcurrentCalls(),
+                "bulkheadRejectedCalls", bulkheadRejected.sum(),
+                "concurrencyLimit", limiter != null ? (int) limiter.getLimit() : bulkhead.getBulkheadConfig().getMaxConcurrentCalls());
+    }
+    
+    public boolean isDegraded() {
+        return circuitBreaker.getState() == CircuitBreaker.State.OPEN
+                || circuitBreaker.getState() == CircuitBreaker.State.FORCED_OPEN;
     }
     
-    @Recover
-    public EnrichmentData recoverFromFailure(Exception e, CustomerRequestEvent event) {
-        log.error("Retry exhausted for customer: {}", event.getCustomerId());
-        return createEmptyEnrichmentData(event.getCustomerId(), "Service-2 unavailable: " + e.getMessage());
+    // Exponential backoff with jitter so that retries of many in-flight lookups do not arrive in lockstep
+    // Calls rejected by the breaker or the bulkhead are not retried: the fallback applies at once
+    private Retry retrySpec() {
+        return Retry.backoff(Math.max(0, maxAttempts - 1), Duration.ofMillis(initialBackoffMs))
+                .jitter(retryJitter)
+                .filter(error -> !isRejected(error))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure())
+                .doBeforeRetry(signal -> log.debug("Retrying Service-2 call, attempt {}: {}",
+                        signal.totalRetries() + 2, signal.failure().getMessage()));
     }
     
     private EnrichmentData createEmptyEnrichmentData(String customerId, String errorMessage) {
@@ -0,0 +1,264 @@
+package com.example.moderation.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Client-side balancing over Service-2 instances: a static list (enrichment.service.instances, falling back
+// to enrichment.service.url) or a file with one base URL per line, re-read when it changes.
+// Customer lookups go to the instance ranked first for the customer by rendezvous hashing, so a customer
+// keeps hitting the same instance and its caches; an instance already loaded above load-factor times
+// the average outstanding requests passes the call on to the next in rank (consistent hashing with
+// bounded loads). Calls without a customer (bulk lookups) take the less loaded of two random instances.
+// Instances failing unhealthy-threshold health checks in a row are ejected until a check passes again;
+// with every instance ejected, all of them are used - a failing call beats no call.
+@Slf4j
+@Component
+public class EnrichmentInstanceBalancer {
+
+    private static final String HEALTH_PATH = "/api/v1/enrichment/health";
+
+    private final List<String> staticInstances;
+    private final Path instancesFile;
+    private final Duration discoveryInterval;
+    private final boolean healthCheckEnabled;
+    private final Duration healthCheckInterval;
+    private final Duration healthCheckTimeout;
+    private final int unhealthyThreshold;
+    private final double loadFactor;
+    private final WebClient webClient;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "enrichment-balancer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, Instance> known = new LinkedHashMap<>();
+    private volatile List<Instance> instances = List.of();
+    private FileTime instancesFileModified;
+
+    public EnrichmentInstanceBalancer(@Value("${enrichment.service.url}") String url,
+                                      @Value("${enrichment.service.instances:}") List<String> instances,
+                                      @Value("${enrichment.service.discovery.file:}") String instancesFile,
+                                      @Value("${enrichment.service.discovery.interval:10s}") Duration discoveryInterval,
+                                      @Value("${enrichment.balancer.health-check.enabled:true}") boolean healthCheckEnabled,
+                                      @Value("${enrichment.balancer.health-check.interval:5s}") Duration healthCheckInterval,
+                                      @Value("${enrichment.balancer.health-check.timeout:1s}") Duration healthCheckTimeout,
+                                      @Value("${enrichment.balancer.health-check.unhealthy-threshold:2}") int unhealthyThreshold,
+                                      @Value("${enrichment.balancer.load-factor:1.25}") double loadFactor,
+                                      WebClient webClient,
+                                      MeterRegistry meterRegistry) {
+        List<String> configured = instances.stream().map(String::trim).filter(value -> !value.isEmpty()).toList();
+        this.staticInstances = configured.isEmpty() ? List.of(url) : configured;
+        this.instancesFile = instancesFile.isBlank() ? null : Path.of(instancesFile);
+        this.discoveryInterval = discoveryInterval;
+        this.healthCheckEnabled = healthCheckEnabled;
+        this.healthCheckInterval = healthCheckInterval;
+        this.healthCheckTimeout = healthCheckTimeout;
+        this.unhealthyThreshold = unhealthyThreshold;
+        this.loadFactor = loadFactor;
+        this.webClient = webClient;
+        this.meterRegistry = meterRegistry;
+        update(staticInstances);
+        discover();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (instancesFile != null) {
+            executor.scheduleWithFixedDelay(this::discover, discoveryInterval.toMillis(), discoveryInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (healthCheckEnabled) {
+            executor.scheduleWithFixedDelay(this::checkHealth, 0, healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    // customerId: null for calls not tied to one customer; exclude: instance the call must not go to
+    // (the one a hedged call is already waiting for), ignored when no other instance is available
+    public Instance choose(String customerId, Instance exclude) {
+        List<Instance> candidates = available(exclude);
+        if (candidates.size() == 1) return candidates.get(0);
+        if (customerId == null) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Instance first = candidates.get(random.nextInt(candidates.size()));
+            Instance second = candidates.get(random.nextInt(candidates.size() - 1));
+            if (second == first) second = candidates.get(candidates.size() - 1);
+            return second.outstanding.get() < first.outstanding.get() ? second : first;
+        }
+
+        long key = mix(customerId.hashCode());
+        Instance[] ranked = candidates.toArray(Instance[]::new);
+        Arrays.sort(ranked, Comparator.comparingLong((Instance instance) -> mix(key ^ instance.seed)).reversed());
+        int total = 0;
+        for (Instance instance : ranked) total += instance.outstanding.get();
+        // +1 counts the call being placed, so that an idle pool never spills
+        double bound = Math.ceil(loadFactor * (total + 1) / ranked.length);
+        for (Instance instance : ranked) {
+            if (instance.outstanding.get() + 1 <= bound) return instance;
+        }
+        return ranked[0];
+    }
+
+    // Counts the call as outstanding on the instance while it runs
+    public <T> Mono<T> call(Instance instance, Function<String, Mono<T>> request) {
+        return Mono.defer(() -> {
+            instance.outstanding.incrementAndGet();
+            return request.apply(instance.url).doFinally(signal -> instance.outstanding.decrementAndGet());
+        });
+    }
+
+    public Map<String, Object> state() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        instances.forEach(instance -> state.put(instance.url,
+                Map.of("healthy", instance.healthy, "outstanding", instance.outstanding.get())));
+        return state;
+    }
+
+    List<Instance> instances() {
+        return instances;
+    }
+
+    private List<Instance> available(Instance exclude) {
+        List<Instance> current = instances;
+        List<Instance> healthy = new ArrayList<>(current.size());
+        for (Instance instance : current) {
+            if (instance.healthy && instance != exclude) healthy.add(instance);
+        }
+        if (!healthy.isEmpty()) return healthy;
+        List<Instance> others = current.stream().filter(instance -> instance != exclude).toList();
+        return others.isEmpty() ? current : others;
+    }
+
+    // Instances keep their state (health, outstanding calls) across updates of the list
+    synchronized void update(List<String> urls) {
+        List<Instance> next = new ArrayList<>();
+        for (String url : urls) {
+            String normalized = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+            next.add(known.computeIfAbsent(normalized, this::register));
+        }
+        if (!next.equals(instances)) {
+            log.info("Service-2 instances: {}", next.stream().map(Instance::url).toList());
+        }
+        instances = List.copyOf(next);
+    }
+
+    // Marks one health check result; package-private for tests
+    void recordHealth(Instance instance, boolean up) {
+        if (up) {
+            instance.failedChecks.set(0);
+            if (!instance.healthy) log.warn("Service-2 instance {} is back, routing to it again", instance.url);
+            instance.healthy = true;
+        } else if (instance.failedChecks.incrementAndGet() >= unhealthyThreshold && instance.healthy) {
+            instance.healthy = false;
+            log.warn("Service-2 instance {} failed {} health checks, ejected", instance.url, unhealthyThreshold);
+        }
+    }
+
+    private Instance register(String url) {
+        Instance instance = new Instance(url);
+        Gauge.builder("moderation.enrichment.instance.outstanding", instance, value -> value.outstanding.get())
+                .description("Service-2 calls in flight per instance")
+                .tag("instance", url)
+                .register(meterRegistry);
+        Gauge.builder("moderation.enrichment.instance.healthy", instance, value -> value.healthy ? 1 : 0)
+                .description("1 while the Service-2 instance receives calls, 0 while ejected")
+                .tag("instance", url)
+                .register(meterRegistry);
+        return instance;
+    }
+
+    // A missing or empty file keeps the list in use
+    private void discover() {
+        if (instancesFile == null) return;
+        try {
+            FileTime modified = Files.getLastModifiedTime(instancesFile);
+            if (modified.equals(instancesFileModified)) return;
+            List<String> urls = Files.readAllLines(instancesFile).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .toList();
+            instancesFileModified = modified;
+            if (!urls.isEmpty()) update(urls);
+        } catch (IOException e) {
+            log.warn("Cannot read Service-2 instances from {}: {}", instancesFile, e.getMessage());
+        }
+    }
+
+    private void checkHealth() {
+        for (Instance instance : instances) {
+            webClient.get()
+                    .uri(instance.url + HEALTH_PATH)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .timeout(healthCheckTimeout)
+                    .subscribe(response -> recordHealth(instance, true), error -> recordHealth(instance, false));
+        }
+    }
+
+    // murmur3 fmix64: spreads hashCode bits so that rendezvous weights of different instances are independent
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    public static final class Instance {
+
+        private final String url;
+        private final long seed;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger failedChecks = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        Instance(String url) {
+            this.url = url;
+            this.seed = mix(url.hashCode());
+        }
+
+        public String url() {
+            return url;
+        }
+
+        int outstanding() {
+            return outstanding.get();
+        }
+
+        boolean healthy() {
+            return healthy;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.moderation.service;
+
+import com.example.moderation.model.EnrichmentData;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+// In-process cache of Service-2 responses, bounded by size and TTL.
+// Entries are dropped on push invalidation from Service-2 (see CustomerChangeConsumer); a load that
+// is in flight when its key is invalidated is not stored, so a stale response cannot re-enter the cache.
+// Loaders that share in-flight calls are told first, so the next miss does not join the stale call either.
+// Failed loads are never cached, callers apply their fallback outside the cache.
+@Slf4j
+@Component
+public class EnrichmentNearCache {
+
+    private final boolean enabled;
+    private final AsyncCache<String, EnrichmentData> cache;
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    public EnrichmentNearCache(@Value("${enrichment.cache.enabled:false}") boolean enabled,
+                               @Value("${enrichment.cache.max-size:10000}") long maxSize,
+                               @Value("${enrichment.cache.ttl:60s}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<String, EnrichmentData>buildAsync(), "enrichment.near-cache");
+        if (enabled) log.info("Enrichment near-cache enabled: maxSize={}, ttl={}", maxSize, ttl);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addInvalidationListener(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    public Mono<EnrichmentData> get(String customerId, Function<String, Mono<EnrichmentData>> loader) {
+        if (!enabled) return loader.apply(customerId);
+        // the cached future is shared between subscribers, one subscriber cancelling must not cancel it
+        return Mono.defer(() -> Mono.fromFuture(
+                cache.get(customerId, (key, executor) -> loader.apply(key).toFuture()), true));
+    }
+
+    public Mono<Map<String, EnrichmentData>> getAll(Collection<String> customerIds,
+                                                    Function<List<String>, Mono<Map<String, EnrichmentData>>> loader) {
+        if (!enabled) return loader.apply(List.copyOf(customerIds));
+        return Mono.defer(() -> Mono.fromFuture(
+                cache.getAll(customerIds, (keys, executor) -> loader.apply(List.copyOf(keys)).toFuture()), true));
+    }
+
+    public void invalidate(String customerId) {
+        if (!enabled) return;
+        listeners.forEach(listener -> listener.invalidated(customerId));
+        cache.synchronous().invalidate(customerId);
+        log.debug("Invalidated enrichment cache entry: {}", customerId);
+    }
+
+    public void invalidateAll() {
+        if (!enabled) return;
+        listeners.forEach(InvalidationListener::invalidatedAll);
+        cache.synchronous().invalidateAll();
+        log.debug("Invalidated all enrichment cache entries");
+    }
+
+    public interface InvalidationListener {
+        void invalidated(String customerId);
+
+        void invalidatedAll();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.moderation.service;
+
+import com.example.moderation.model.EnrichmentData;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Gathers concurrent lookups within a time/size window into one bulk call to Service-2.
+// Lookups of a customer that is already in flight share the same pending result.
+// A failed bulk call fails every lookup of the batch; retries and fallbacks are up to the caller.
+// An invalidated customer is dropped from the in-flight lookups: its pending call may predate the change,
+// so only lookups made before the invalidation still get its result.
+@Slf4j
+public class EnrichmentRequestCoalescer implements EnrichmentNearCache.InvalidationListener {
+
+    private final Function<List<String>, Mono<Map<String, EnrichmentData>>> batchLoader;
+    private final Function<String, EnrichmentData> missingResult;
+    private final int maxBatchSize;
+    private final Duration window;
+
+    private final Map<String, CompletableFuture<EnrichmentData>> inFlight = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<Lookup> pending = new ArrayList<>();
+    private long generation;
+
+    public EnrichmentRequestCoalescer(Function<List<String>, Mono<Map<String, EnrichmentData>>> batchLoader,
+                                      Function<String, EnrichmentData> missingResult,
+                                      int maxBatchSize, Duration window) {
+        this.batchLoader = batchLoader;
+        this.missingResult = missingResult;
+        this.maxBatchSize = maxBatchSize;
+        this.window = window;
+    }
+
+    public Mono<EnrichmentData> lookup(String customerId) {
+        return Mono.defer(() -> {
+            CompletableFuture<EnrichmentData> created = new CompletableFuture<>();
+            CompletableFuture<EnrichmentData> existing = inFlight.putIfAbsent(customerId, created);
+            if (existing != null) {
+                // cancellation by one subscriber must not cancel the shared result
+                return Mono.fromFuture(existing, true);
+            }
+            enqueue(new Lookup(customerId, created));
+            return Mono.fromFuture(created, true);
+        });
+    }
+
+    @Override
+    public void invalidated(String customerId) {
+        inFlight.remove(customerId);
+    }
+
+    @Override
+    public void invalidatedAll() {
+        inFlight.clear();
+    }
+
+    private void enqueue(Lookup lookup) {
+        List<Lookup> ready = null;
+        lock.lock();
+        try {
+            pending.add(lookup);
+            if (pending.size() >= maxBatchSize) {
+                ready = drain();
+            } else if (pending.size() == 1) {
+                long scheduledGeneration = generation;
+                Schedulers.parallel().schedule(() -> flush(scheduledGeneration),
+                        window.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (ready != null) dispatch(ready);
+    }
+
+    private void flush(long scheduledGeneration) {
+        List<Lookup> ready = null;
+        lock.lock();
+        try {
+            // the batch this timer was armed for has already been sent by the size trigger
+            if (scheduledGeneration == generation && !pending.isEmpty()) ready = drain();
+        } finally {
+            lock.unlock();
+        }
+        if (ready != null) dispatch(ready);
+    }
+
+    private List<Lookup> drain() {
+        List<Lookup> ready = pending;
+        pending = new ArrayList<>();
+        generation++;
+        return ready;
+    }
+
+    private void dispatch(List<Lookup> batch) {
+        // a customer invalidated while queued is queued again by the next lookup
+        List<String> customerIds = batch.stream().map(Lookup::customerId).distinct().toList();
+        log.debug("Coalesced {} lookups into one batch call", customerIds.size());
+        // a loader throwing before it returns a Mono fails the batch like an error signal would
+        Mono.defer(() -> batchLoader.apply(customerIds))
+                .defaultIfEmpty(Map.of())
+                .subscribe(
+                        found -> batch.forEach(lookup -> complete(lookup, found.get(lookup.customerId()))),
+                        error -> batch.forEach(lookup -> fail(lookup, error)));
+    }
+
+    // Only the lookup's own future is removed: after an invalidation the key may map to a newer lookup
+    private void fail(Lookup lookup, Throwable error) {
+        inFlight.remove(lookup.customerId(), lookup.result());
+        lookup.result().completeExceptionally(error);
+    }
+
+    private void complete(Lookup lookup, EnrichmentData data) {
+        // removed before completion so that later lookups start a fresh fetch
+        inFlight.remove(lookup.customerId(), lookup.result());
+        lookup.result().complete(data != null ? data : missingResult.apply(lookup.customerId()));
+    }
+
+    private record Lookup(String customerId, CompletableFuture<EnrichmentData> result) {
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.moderation.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Pipeline stage meters: consume (receive to ack), enrichment (including retries), Kafka publish,
+// outcomes by status and rejecting rule, events in flight. Rule and MongoDB timings are recorded by
+// ModerationRulesEngine and IdempotencyStore; percentiles are configured under management.metrics.distribution.
+// Meters recorded per event are built once: up front where the tags are fixed, otherwise on first use
+// of a tag value and kept in a map, so the hot path does no builder or registry lookup.
+@Component
+public class ModerationMetrics {
+
+    private final MeterRegistry registry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Timer> consumeTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> enrichmentSuccessTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> enrichmentErrorTimers = new ConcurrentHashMap<>();
+    private final Timer publishSuccess;
+    private final Timer publishError;
+    // status -> rejecting rule ("none" for published and failed events) -> counter
+    private final Map<ModerationService.ProcessingStatus, Map<String, Counter>> outcomes =
+            new EnumMap<>(ModerationService.ProcessingStatus.class);
+    private final Counter bulkheadRejections;
+    private final Map<String, Counter> limiterSheds = new ConcurrentHashMap<>();
+    private final Map<String, Counter> hedges = new ConcurrentHashMap<>();
+
+    public ModerationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        registry.gauge("moderation.events.in-flight", inFlight);
+        this.publishSuccess = publishTimer("success");
+        this.publishError = publishTimer("error");
+        for (ModerationService.ProcessingStatus status : ModerationService.ProcessingStatus.values()) {
+            outcomes.put(status, new ConcurrentHashMap<>());
+        }
+        this.bulkheadRejections = Counter.builder("moderation.enrichment.bulkhead.rejected")
+                .description("Service-2 calls rejected because the bulkhead was full")
+                .register(registry);
+    }
+
+    public Timer.Sample startConsume() {
+        return Timer.start(registry);
+    }
+
+    // mode: consumer mode the event came through (record, batch, reactive, parallel)
+    public void stopConsume(Timer.Sample sample, String mode) {
+        sample.stop(consumeTimers.computeIfAbsent(mode, value -> Timer.builder("moderation.consume")
+                .description("Time from receiving an event to acknowledging its offset")
+                .tag("mode", value)
+                .register(registry)));
+    }
+
+    public void eventStarted(int events) {
+        inFlight.addAndGet(events);
+    }
+
+    public void eventFinished(int events) {
+        inFlight.addAndGet(-events);
+    }
+
+    // type: single, async or batch; retries and fallbacks are part of the measured time
+    public <T> T timeEnrichment(String type, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(enrichmentTimer(type, outcome));
+        }
+    }
+
+    public <T> Mono<T> timeEnrichment(String type, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return call.doOnSuccess(result -> sample.stop(enrichmentTimer(type, "success")))
+                    .doOnError(error -> sample.stop(enrichmentTimer(type, "error")));
+        });
+    }
+
+    public Timer.Sample startPublish() {
+        return Timer.start(registry);
+    }
+
+    // Time until the broker acknowledged the record
+    public void stopPublish(Timer.Sample sample, Throwable error) {
+        sample.stop(error == null ? publishSuccess : publishError);
+    }
+
+    // rule: name of the rejecting rule, "none" for published and failed events
+    public void outcome(ModerationService.ProcessingStatus status, String rule) {
+        outcomes.get(status).computeIfAbsent(rule != null ? rule : "none", value -> Counter.builder("moderation.events")
+                        .description("Moderated events by final status")
+                        .tag("status", status.name())
+                        .tag("rule", value)
+                        .register(registry))
+                .increment();
+    }
+
+    // Service-2 circuit breaker state changes; the current state, call outcomes and not permitted calls
+    // are published by Resilience4j itself as resilience4j.circuitbreaker.*
+    public void circuitBreakerTransition(String from, String to) {
+        Counter.builder("moderation.enrichment.circuit-breaker.transitions")
+                .description("Service-2 circuit breaker state transitions")
+                .tag("from", from)
+                .tag("to", to)
+                .register(registry)
+                .increment();
+    }
+
+    public void bulkheadRejected() {
+        bulkheadRejections.increment();
+    }
+
+    public void registerLimiter(AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("moderation.enrichment.limiter.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive limit on concurrent Service-2 calls")
+                .register(registry);
+        Gauge.builder("moderation.enrichment.limiter.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Service-2 calls holding a limiter permit")
+                .register(registry);
+        Gauge.builder("moderation.enrichment.limiter.queued", limiter, AdaptiveConcurrencyLimiter::getQueued)
+                .description("Service-2 calls waiting for a limiter permit")
+                .register(registry);
+    }
+
+    // reason: queue-full or queue-timeout
+    public void limiterShed(String reason) {
+        limiterSheds.computeIfAbsent(reason, value -> Counter.builder("moderation.enrichment.limiter.shed")
+                        .description("Service-2 calls shed by the adaptive concurrency limiter")
+                        .tag("reason", value)
+                        .register(registry))
+                .increment();
+    }
+
+    public void registerHedger(RequestHedger hedger) {
+        TimeGauge.builder("moderation.enrichment.hedge.delay", hedger, TimeUnit.MILLISECONDS,
+                        h -> h.getDelay().toMillis())
+                .description("Time a Service-2 lookup may take before a hedged request is sent")
+                .register(registry);
+    }
+
+    // outcome: won (the hedge answered first), lost, failed (both attempts) or no-budget (hedge not sent)
+    public void hedge(String outcome) {
+        hedges.computeIfAbsent(outcome, value -> Counter.builder("moderation.enrichment.hedges")
+                        .description("Hedged Service-2 requests by outcome")
+                        .tag("outcome", value)
+                        .register(registry))
+                .increment();
+    }
+
+    private Timer enrichmentTimer(String type, String outcome) {
+        Map<String, Timer> timers = "success".equals(outcome) ? enrichmentSuccessTimers : enrichmentErrorTimers;
+        return timers.computeIfAbsent(type, value -> Timer.builder("moderation.enrichment")
+                .description("Service-2 lookup including retries")
+                .tag("type", value)
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    private Timer publishTimer(String outcome) {
+        return Timer.builder("moderation.publish")
+                .description("Kafka publish to Topic-2 until broker acknowledgement")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
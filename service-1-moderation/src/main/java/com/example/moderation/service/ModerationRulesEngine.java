@@ -3,65 +3,287 @@ package com.example.moderation.service;
 import com.example.moderation.model.CustomerRequestEvent;
 import com.example.moderation.model.EnrichmentData;
 import com.example.moderation.rules.ModerationRule;
+import com.example.moderation.rules.RuleCost;
 import com.example.moderation.rules.RuleResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-// Chain of Responsibility pattern for moderation rules
+// Chain of Responsibility pattern for moderation rules.
+// Enabled rules are compiled once into an immutable plan (rebuilt on config change), so evaluation does
+// not re-check isEnabled() and the all-passed path allocates nothing but the final result.
+// The plan runs rules in cost order, priority breaking ties: local CPU rules, then I/O rules, then rules that
+// need enrichment data, so an event rejected early never pays for the lookups of later rules.
+// With adaptive ordering, commutable rules are periodically re-sorted within their stage by observed
+// time spent per rejection; pinned rules keep their slot.
+// In parallel mode the independent rules of one event run concurrently; results are still read in plan
+// order, so the reported failure is the first rejecting rule of the plan, exactly as in sequential mode.
 @Slf4j
 @Service
 public class ModerationRulesEngine {
     
+    // marker: too few independent rules to run, the caller falls back to sequential evaluation
+    private static final ModerationEngineResult NOT_PARALLELIZED = new ModerationEngineResult();
+    
     private final List<ModerationRule> rules;
+    private final Map<ModerationRule, RuleCounters> counters = new IdentityHashMap<>();
+    private final boolean adaptiveOrder;
+    private final Duration reorderInterval;
+    private final long minSamples;
+    // null: sequential evaluation
+    private final Executor ruleExecutor;
+    private ScheduledExecutorService reorderExecutor;
+    // every registered rule, in the order the next plan is compiled from
+    private volatile List<ModerationRule> order;
+    private volatile EvaluationPlan plan;
     
     public ModerationRulesEngine(List<ModerationRule> rules) {
+        this(rules, false, Duration.ofMinutes(1), 1000, null, new SimpleMeterRegistry());
+    }
+    
+    @Autowired
+    public ModerationRulesEngine(List<ModerationRule> rules,
+                                 @Value("${moderation.engine.adaptive-order.enabled:false}") boolean adaptiveOrder,
+                                 @Value("${moderation.engine.adaptive-order.interval:1m}") Duration reorderInterval,
+                                 @Value("${moderation.engine.adaptive-order.min-samples:1000}") long minSamples,
+                                 @Value("${moderation.engine.parallel.enabled:false}") boolean parallel,
+                                 @Value("${moderation.engine.parallel.threads:16}") int parallelThreads,
+                                 Environment environment,
+                                 MeterRegistry meterRegistry) {
+        this(rules, adaptiveOrder, reorderInterval, minSamples,
+                parallel ? ruleExecutor(Threading.VIRTUAL.isActive(environment), parallelThreads) : null, meterRegistry);
+    }
+    
+    ModerationRulesEngine(List<ModerationRule> rules, boolean adaptiveOrder, Duration reorderInterval, long minSamples,
+                          Executor ruleExecutor, MeterRegistry meterRegistry) {
         this.rules = rules.stream()
                 .sorted(Comparator.comparingInt(ModerationRule::getPriority))
                 .toList();
-        log.info("Initialized with {} rules", this.rules.size());
+        this.rules.forEach(rule -> counters.put(rule, new RuleCounters(rule.getRuleName(), meterRegistry)));
+        this.adaptiveOrder = adaptiveOrder;
+        this.reorderInterval = reorderInterval;
+        this.minSamples = minSamples;
+        this.ruleExecutor = ruleExecutor;
+        this.order = this.rules;
+        this.plan = compile(order);
+        log.info("Initialized with {} rules, {} enabled", this.rules.size(), plan.steps.length);
+    }
+    
+    @PostConstruct
+    void start() {
+        if (!adaptiveOrder) return;
+        reorderExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rules-reorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = reorderInterval.toMillis();
+        reorderExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                reorder();
+            } catch (Exception e) {
+                log.error("Rule reorder failed: {}", e.getMessage(), e);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("Adaptive rule ordering enabled: interval={}, minSamples={}", reorderInterval, minSamples);
+    }
+    
+    @PreDestroy
+    void stop() {
+        if (reorderExecutor != null) reorderExecutor.shutdownNow();
+        if (ruleExecutor instanceof SimpleAsyncTaskExecutor virtualExecutor) virtualExecutor.close();
+        else if (ruleExecutor instanceof ExecutorService pool) pool.shutdownNow();
+    }
+    
+    /**
+     * Пересобирает план проверки: правила заново читают конфигурацию, выключенные правила исключаются.
+     * Вызывается после изменения ModerationRulesConfig.
+     */
+    public synchronized void rebuildPlan() {
+        rules.forEach(ModerationRule::refresh);
+        plan = compile(order);
+        log.info("Rebuilt evaluation plan: {}", getEvaluationOrder());
+    }
+    
+    /**
+     * Переставляет переставляемые правила внутри каждой стадии по возрастанию времени,
+     * затраченного на одно отклонение, за период с прошлой перестановки.
+     * Стадия не трогается, пока у любого из её переставляемых правил меньше min-samples выполнений.
+     *
+     * @return true если порядок изменился
+     */
+    public synchronized boolean reorder() {
+        List<ModerationRule> current = order;
+        List<ModerationRule> next = new ArrayList<>(current);
+        for (int stage = 0; stage <= 2; stage++) {
+            List<Integer> slots = new ArrayList<>();
+            for (int i = 0; i < current.size(); i++) {
+                ModerationRule rule = current.get(i);
+                if (stage(rule) == stage && rule.isCommutable() && rule.isEnabled()) slots.add(i);
+            }
+            if (slots.size() < 2) continue;
+            List<ModerationRule> movable = slots.stream().map(current::get).toList();
+            if (movable.stream().anyMatch(rule -> counters.get(rule).windowExecutions() < minSamples)) continue;
+            
+            Map<ModerationRule, Double> costPerReject = new IdentityHashMap<>();
+            movable.forEach(rule -> costPerReject.put(rule, counters.get(rule).windowCostPerReject()));
+            movable.forEach(rule -> counters.get(rule).advanceWindow());
+            List<ModerationRule> sorted = movable.stream().sorted(Comparator.comparingDouble(costPerReject::get)).toList();
+            for (int i = 0; i < slots.size(); i++) next.set(slots.get(i), sorted.get(i));
+        }
+        if (next.equals(current)) return false;
+        order = List.copyOf(next);
+        plan = compile(order);
+        log.info("Reordered rules: {}", getEvaluationOrder());
+        return true;
     }
     
     public ModerationEngineResult evaluate(CustomerRequestEvent event, EnrichmentData enrichmentData) {
+        return evaluate(event, enrichmentData, Map.of());
+    }
+    
+    // precomputedResults: rule outcomes already resolved by the caller (e.g. bulk duplicate lookup), keyed by rule name
+    public ModerationEngineResult evaluate(CustomerRequestEvent event, EnrichmentData enrichmentData,
+                                           Map<String, RuleResult> precomputedResults) {
+        return evaluate(event, enrichmentData, true, precomputedResults);
+    }
+    
+    /**
+     * Выполняет правила, которым не нужны данные обогащения (см. ModerationRule#requiresEnrichment).
+     * Позволяет отклонить событие до обращения к Service-2.
+     *
+     * @param event событие
+     * @param precomputedResults уже известные результаты правил по имени правила
+     * @return результат с отклонением или null, если решение требует данных обогащения
+     */
+    public ModerationEngineResult evaluateBeforeEnrichment(CustomerRequestEvent event,
+                                                           Map<String, RuleResult> precomputedResults) {
+        ModerationEngineResult result = evaluate(event, null, false, precomputedResults);
+        return result != null && !result.isAllRulesPassed() ? result : null;
+    }
+    
+    // Returns null when a rule needing enrichment is reached and enrichment is not available
+    private ModerationEngineResult evaluate(CustomerRequestEvent event, EnrichmentData enrichmentData,
+                                            boolean enrichmentAvailable, Map<String, RuleResult> precomputedResults) {
         log.debug("Evaluating rules for event: {}", event.getEventId());
         
-        List<RuleResult> results = new ArrayList<>();
-        boolean allPassed = true;
-        RuleResult failedRule = null;
+        EvaluationPlan current = plan;
+        // a known rejection costs nothing, so it is reported before any rule runs
+        ModerationEngineResult known = current.precomputedRejection(event.getEventId(), precomputedResults, rules.size());
+        if (known != null) return known;
         
-        for (ModerationRule rule : rules) {
-            if (!rule.isEnabled()) continue;
-            
-            try {
-                RuleResult result = rule.apply(event, enrichmentData);
-                results.add(result);
-                
+        if (ruleExecutor != null) {
+            ModerationEngineResult result = evaluateConcurrently(current, event, enrichmentData, enrichmentAvailable,
+                    precomputedResults);
+            if (result != NOT_PARALLELIZED) return result;
+        }
+        
+        ModerationRule[] steps = current.steps;
+        for (int i = 0; i < steps.length; i++) {
+            ModerationRule rule = steps[i];
+            if (!enrichmentAvailable && rule.requiresEnrichment()) return null;
+            RuleResult result = precomputedResults.get(rule.getRuleName());
+            if (result == null) result = applyRule(current, i, event, enrichmentData);
+            if (!result.isPassed()) return current.rejected(event.getEventId(), i, result, rules.size());
+        }
+        return current.allPassed(event.getEventId(), rules.size());
+    }
+    
+    // Independent rules are started up front and joined in plan order; other rules run inline at their position.
+    // A rejection at step k makes independent rules after k that have not started yet skip their work;
+    // rules already running finish and their results are ignored.
+    @SuppressWarnings("unchecked")
+    private ModerationEngineResult evaluateConcurrently(EvaluationPlan current, CustomerRequestEvent event,
+                                                        EnrichmentData enrichmentData, boolean enrichmentAvailable,
+                                                        Map<String, RuleResult> precomputedResults) {
+        ModerationRule[] steps = current.steps;
+        int concurrent = 0;
+        for (ModerationRule rule : steps) {
+            if (isConcurrent(rule, enrichmentAvailable, precomputedResults)) concurrent++;
+        }
+        if (concurrent < 2) return NOT_PARALLELIZED;
+        
+        AtomicInteger firstRejected = new AtomicInteger(Integer.MAX_VALUE);
+        CompletableFuture<RuleResult>[] running = new CompletableFuture[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            if (!isConcurrent(steps[i], enrichmentAvailable, precomputedResults)) continue;
+            int step = i;
+            running[i] = CompletableFuture.supplyAsync(() -> {
+                // skipped: the loop below returns at the earlier rejection before reaching this step
+                if (step > firstRejected.get()) return null;
+                RuleResult result = applyRule(current, step, event, enrichmentData);
+                if (!result.isPassed()) firstRejected.accumulateAndGet(step, Math::min);
+                return result;
+            }, ruleExecutor);
+        }
+        
+        try {
+            for (int i = 0; i < steps.length; i++) {
+                ModerationRule rule = steps[i];
+                if (!enrichmentAvailable && rule.requiresEnrichment()) return null;
+                RuleResult result = precomputedResults.get(rule.getRuleName());
+                if (result == null) {
+                    result = running[i] != null ? running[i].join() : applyRule(current, i, event, enrichmentData);
+                }
                 if (!result.isPassed()) {
-                    allPassed = false;
-                    failedRule = result;
-                    break;
+                    firstRejected.accumulateAndGet(i, Math::min);
+                    return current.rejected(event.getEventId(), i, result, rules.size());
                 }
-            } catch (Exception e) {
-                log.error("Rule {} error: {}", rule.getRuleName(), e.getMessage());
-                RuleResult errorResult = RuleResult.rejected(rule.getRuleName(), "Rule error", e.getMessage());
-                results.add(errorResult);
-                allPassed = false;
-                failedRule = errorResult;
-                break;
+            }
+            return current.allPassed(event.getEventId(), rules.size());
+        } finally {
+            // rules not started yet are dropped from the executor queue
+            for (CompletableFuture<RuleResult> future : running) {
+                if (future != null) future.cancel(false);
             }
         }
-        
-        return ModerationEngineResult.builder()
-                .eventId(event.getEventId())
-                .allRulesPassed(allPassed)
-                .ruleResults(results)
-                .failedRule(failedRule)
-                .rulesEvaluated(results.size())
-                .totalRules(rules.size())
-                .build();
+    }
+    
+    private static boolean isConcurrent(ModerationRule rule, boolean enrichmentAvailable,
+                                        Map<String, RuleResult> precomputedResults) {
+        return rule.isIndependent() && (enrichmentAvailable || !rule.requiresEnrichment())
+                && !precomputedResults.containsKey(rule.getRuleName());
+    }
+    
+    private static RuleResult applyRule(EvaluationPlan current, int step, CustomerRequestEvent event,
+                                        EnrichmentData enrichmentData) {
+        ModerationRule rule = current.steps[step];
+        RuleResult result;
+        long start = System.nanoTime();
+        try {
+            result = rule.apply(event, enrichmentData);
+        } catch (Exception e) {
+            log.error("Rule {} error: {}", rule.getRuleName(), e.getMessage());
+            result = RuleResult.rejected(rule.getRuleName(), "Rule error", e.getMessage());
+        }
+        current.counters[step].record(result.isPassed(), System.nanoTime() - start);
+        return result;
     }
     
     public List<String> getRegisteredRules() {
@@ -70,6 +292,148 @@ public class ModerationRulesEngine {
                 .toList();
     }
     
+    /**
+     * Текущий порядок выполнения включённых правил.
+     */
+    public List<String> getEvaluationOrder() {
+        return Arrays.stream(plan.steps).map(ModerationRule::getRuleName).toList();
+    }
+    
+    /**
+     * Накопленная статистика выполнения правил (без предвычисленных результатов), в порядке выполнения.
+     */
+    public List<RuleStatistics> getRuleStatistics() {
+        return order.stream()
+                .sorted(Comparator.comparingInt(ModerationRulesEngine::stage))
+                .map(rule -> counters.get(rule).snapshot(rule))
+                .toList();
+    }
+    
+    private EvaluationPlan compile(List<ModerationRule> ordered) {
+        ModerationRule[] steps = ordered.stream()
+                .filter(ModerationRule::isEnabled)
+                .sorted(Comparator.comparingInt(ModerationRulesEngine::stage))
+                .toArray(ModerationRule[]::new);
+        return new EvaluationPlan(steps, Arrays.stream(steps).map(counters::get).toArray(RuleCounters[]::new));
+    }
+    
+    private static Executor ruleExecutor(boolean virtual, int threads) {
+        if (virtual) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("moderation-rule-");
+            executor.setVirtualThreads(true);
+            return executor;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "moderation-rule-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(threads, threadFactory);
+    }
+    
+    // 0: local CPU rules, 1: I/O rules, 2: rules waiting for enrichment data
+    private static int stage(ModerationRule rule) {
+        if (rule.requiresEnrichment()) return 2;
+        return rule.getCost() == RuleCost.IO ? 1 : 0;
+    }
+    
+    // Enabled rules in execution order, with the pass results of every prefix shared across evaluations
+    private static final class EvaluationPlan {
+        private final ModerationRule[] steps;
+        private final RuleCounters[] counters;
+        private final List<RuleResult> passResults;
+        
+        private EvaluationPlan(ModerationRule[] steps, RuleCounters[] counters) {
+            this.steps = steps;
+            this.counters = counters;
+            this.passResults = Arrays.stream(steps).map(rule -> RuleResult.passed(rule.getRuleName())).toList();
+        }
+        
+        ModerationEngineResult precomputedRejection(String eventId, Map<String, RuleResult> precomputedResults,
+                                                    int totalRules) {
+            if (precomputedResults.isEmpty()) return null;
+            for (ModerationRule rule : steps) {
+                RuleResult result = precomputedResults.get(rule.getRuleName());
+                if (result != null && !result.isPassed()) {
+                    return new ModerationEngineResult(eventId, false, List.of(result), result, 1, totalRules);
+                }
+            }
+            return null;
+        }
+        
+        ModerationEngineResult allPassed(String eventId, int totalRules) {
+            return new ModerationEngineResult(eventId, true, passResults, null, steps.length, totalRules);
+        }
+        
+        ModerationEngineResult rejected(String eventId, int step, RuleResult failed, int totalRules) {
+            List<RuleResult> results = new ArrayList<>(step + 1);
+            results.addAll(passResults.subList(0, step));
+            results.add(failed);
+            return new ModerationEngineResult(eventId, false, results, failed, step + 1, totalRules);
+        }
+    }
+    
+    // Totals are updated on the evaluation path; the window marks are only touched by reorder()
+    private static final class RuleCounters {
+        private final LongAdder passed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final Timer passedTimer;
+        private final Timer rejectedTimer;
+        private long windowPassed;
+        private long windowRejected;
+        private long windowNanos;
+        
+        RuleCounters(String ruleName, MeterRegistry meterRegistry) {
+            this.passedTimer = ruleTimer(ruleName, "passed", meterRegistry);
+            this.rejectedTimer = ruleTimer(ruleName, "rejected", meterRegistry);
+        }
+        
+        private static Timer ruleTimer(String ruleName, String outcome, MeterRegistry meterRegistry) {
+            return Timer.builder("moderation.rule")
+                    .description("Rule apply() time, precomputed results excluded")
+                    .tag("rule", ruleName)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+        
+        void record(boolean rulePassed, long elapsedNanos) {
+            (rulePassed ? passed : rejected).increment();
+            nanos.add(elapsedNanos);
+            (rulePassed ? passedTimer : rejectedTimer).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+        
+        long windowExecutions() {
+            return passed.sum() - windowPassed + rejected.sum() - windowRejected;
+        }
+        
+        // Rules that never reject go last
+        double windowCostPerReject() {
+            long rejects = rejected.sum() - windowRejected;
+            return rejects == 0 ? Double.POSITIVE_INFINITY : (double) (nanos.sum() - windowNanos) / rejects;
+        }
+        
+        void advanceWindow() {
+            windowPassed = passed.sum();
+            windowRejected = rejected.sum();
+            windowNanos = nanos.sum();
+        }
+        
+        RuleStatistics snapshot(ModerationRule rule) {
+            long passedCount = passed.sum();
+            long rejectedCount = rejected.sum();
+            long executions = passedCount + rejectedCount;
+            return new RuleStatistics(rule.getRuleName(), rule.getPriority(), rule.getCost(), rule.isCommutable(),
+                    rule.isEnabled(), passedCount, rejectedCount,
+                    executions == 0 ? 0 : nanos.sum() / executions / 1000.0);
+        }
+    }
+    
+    public record RuleStatistics(String ruleName, int priority, RuleCost cost, boolean commutable, boolean enabled,
+                                 long passed, long rejected, double avgMicros) {
+    }
+    
     @lombok.Data
     @lombok.Builder
     @lombok.NoArgsConstructor
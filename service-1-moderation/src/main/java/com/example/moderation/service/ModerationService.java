@@ -1,15 +1,27 @@
 package com.example.moderation.service;
 
+import com.example.moderation.exception.GlobalExceptionHandler;
 import com.example.moderation.model.*;
-import com.example.moderation.repository.ProcessedEventRepository;
+import com.example.moderation.repository.IdempotencyStore;
+import com.example.moderation.rules.RuleResult;
+import com.example.moderation.rules.impl.DuplicateEventRule;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 @Slf4j
@@ -19,49 +31,320 @@ public class ModerationService {
     
     private final EnrichmentClientService enrichmentClient;
     private final ModerationRulesEngine rulesEngine;
-    private final ProcessedEventRepository processedEventRepository;
+    private final IdempotencyStore idempotencyStore;
+    private final ProcessedEventFilter processedEventFilter;
+    private final ProcessedEventWriter processedEventWriter;
+    private final ModerationMetrics metrics;
     private final KafkaTemplate<String, Object> kafkaTemplate;
     
     @Value("${kafka.topics.output}")
     private String outputTopic;
     
+    @Value("${moderation.idempotency.lease-timeout:5m}")
+    private Duration leaseTimeout;
+    
+    @Value("${moderation.idempotency.in-progress-retry:5s}")
+    private Duration inProgressRetry;
+    
     public ProcessingResult processEvent(CustomerRequestEvent event) {
+        return submitEvent(event).join();
+    }
+    
+    /**
+     * Модерирует событие в потоке вызывающего, запись итога передаётся ProcessedEventWriter.
+     * Future завершается, когда итог записан в MongoDB: только после этого можно подтверждать offset.
+     * Отправка одобренного события в Topic-2 к этому моменту только начата, её результат не ожидается
+     * (ошибка отправки логируется). Если итог не записан, future завершается ошибкой
+     * {@link GlobalExceptionHandler.OutcomeNotRecordedException}: захват освобождён, offset подтверждать нельзя,
+     * событие нужно доставить повторно. Захват, перехваченный другим обработчиком, - обычный итог (дубликат):
+     * событие запишет и опубликует тот обработчик.
+     * Недоступность Service-2 выбрасывается сразу ({@link GlobalExceptionHandler.EnrichmentServiceException}),
+     * захват события при этом освобождается для повторной попытки. Событие, которое обрабатывает другой
+     * обработчик, тоже выбрасывается ({@link GlobalExceptionHandler.EventInProgressException}):
+     * оно ещё не обработано, и его offset подтверждать нельзя.
+     */
+    public CompletableFuture<ProcessingResult> submitEvent(CustomerRequestEvent event) {
+        metrics.eventStarted(1);
+        try {
+            return moderate(event).whenComplete((result, error) -> metrics.eventFinished(1));
+        } catch (RuntimeException e) {
+            metrics.eventFinished(1);
+            throw e;
+        }
+    }
+    
+    private CompletableFuture<ProcessingResult> moderate(CustomerRequestEvent event) {
         log.info("Processing event: {}, customer: {}", event.getEventId(), event.getCustomerId());
         
+        IdempotencyStore.Claim claim = null;
         try {
-            EnrichmentData enrichmentData = enrichmentClient.getEnrichmentData(event);
-            ModerationRulesEngine.ModerationEngineResult rulesResult = rulesEngine.evaluate(event, enrichmentData);
-            saveProcessedEvent(event, rulesResult);
+            if (processedEventFilter.check(event.getEventId()) == ProcessedEventFilter.Answer.PROCESSED) {
+                return CompletableFuture.completedFuture(toProcessingResult(event, evaluateDuplicate(event)));
+            }
+            // rejected by local rules: no enrichment call, the outcome insert doubles as the duplicate check
+            ModerationRulesEngine.ModerationEngineResult earlyRejection = evaluateBeforeEnrichment(event);
+            if (earlyRejection != null) return CompletableFuture.completedFuture(recordEarlyRejection(event, earlyRejection));
             
-            if (rulesResult.isAllRulesPassed()) {
-                publishToOutputTopic(event, enrichmentData);
-                return ProcessingResult.builder()
-                        .eventId(event.getEventId())
-                        .status(ProcessingStatus.PUBLISHED)
-                        .message("Event approved and published to Topic-2")
-                        .processedAt(LocalDateTime.now())
-                        .build();
-            } else {
-                return ProcessingResult.builder()
-                        .eventId(event.getEventId())
-                        .status(ProcessingStatus.REJECTED)
-                        .message(rulesResult.getRejectionReason())
-                        .rejectionDetails(rulesResult.getFailedRule() != null ? 
-                                rulesResult.getFailedRule().getDetails() : null)
-                        .processedAt(LocalDateTime.now())
-                        .build();
+            // one insert both checks for a duplicate and reserves the event against concurrent consumers
+            IdempotencyStore.ClaimResult claimed = idempotencyStore.claim(event);
+            if (claimed.status() == IdempotencyStore.ClaimStatus.COMPLETED) {
+                return CompletableFuture.completedFuture(toProcessingResult(event, evaluateDuplicate(event)));
+            }
+            if (claimed.status() == IdempotencyStore.ClaimStatus.IN_PROGRESS) {
+                throw new GlobalExceptionHandler.EventInProgressException(event.getEventId());
             }
+            claim = claimed.claim();
             
+            EnrichmentData enrichmentData = metrics.timeEnrichment("single", () -> enrichmentClient.getEnrichmentData(event));
+            ModerationRulesEngine.ModerationEngineResult rulesResult = rulesEngine.evaluate(event, enrichmentData,
+                    DuplicateEventRule.precomputed(false));
+            
+            return releaseOnWriteFailure(claim, processedEventWriter.complete(claim, buildProcessedEvent(event, rulesResult)))
+                    .thenApply(recorded -> {
+                        // a lost claim means another consumer took the event over, it records and publishes instead of us
+                        if (!recorded) return toProcessingResult(event, evaluateDuplicate(event));
+                        processedEventFilter.recordProcessed(event.getEventId());
+                        try {
+                            if (rulesResult.isAllRulesPassed()) publishToOutputTopic(event, enrichmentData);
+                            return toProcessingResult(event, rulesResult);
+                        } catch (Exception e) {
+                            log.error("Error publishing event {}: {}", event.getEventId(), e.getMessage());
+                            return errorResult(event, e);
+                        }
+                    });
+            
+        } catch (GlobalExceptionHandler.EnrichmentServiceException | GlobalExceptionHandler.EventInProgressException e) {
+            // retried later (retry topic or the caller): the next attempt has to be able to claim the event again
+            if (claim != null) idempotencyStore.release(claim);
+            throw e;
         } catch (Exception e) {
             log.error("Error processing event {}: {}", event.getEventId(), e.getMessage());
-            saveErrorEvent(event, e.getMessage());
-            return ProcessingResult.builder()
-                    .eventId(event.getEventId())
-                    .status(ProcessingStatus.ERROR)
-                    .message("Processing error: " + e.getMessage())
-                    .processedAt(LocalDateTime.now())
-                    .build();
+            return saveErrorEvent(claim, event, e.getMessage()).thenApply(recorded -> errorResult(event, e));
+        }
+    }
+    
+    /**
+     * Обрабатывает пачку событий из одного poll: события захватываются одной bulk-вставкой,
+     * обогащение запрашивается разом, итоги записываются одной bulk-операцией.
+     * Ошибка одного события не влияет на остальные. Если какое-то событие обрабатывает другой обработчик,
+     * остальные обрабатываются, после чего выбрасывается
+     * {@link GlobalExceptionHandler.EventInProgressException} с первым таким событием в порядке пачки.
+     */
+    public List<ProcessingResult> processBatch(List<CustomerRequestEvent> events) {
+        return processBatch(events, null);
+    }
+    
+    /**
+     * Вариант {@link #processBatch(List)} для транзакции Kafka: sources - исходные записи Topic-1
+     * (topic-partition@offset) по порядку событий. Публикации в Topic-2 входят в транзакцию потока
+     * слушателя. Первое по порядку незахваченное или незаписанное событие прерывает пачку исключением
+     * {@link GlobalExceptionHandler.OutcomeNotRecordedException}, событие с чужим захватом -
+     * {@link GlobalExceptionHandler.EventInProgressException}: транзакция откатывается, и poll доставляется повторно.
+     */
+    public List<ProcessingResult> processBatch(List<CustomerRequestEvent> events, List<String> sources) {
+        metrics.eventStarted(events.size());
+        try {
+            return moderateBatch(events, sources);
+        } finally {
+            metrics.eventFinished(events.size());
+        }
+    }
+    
+    private List<ProcessingResult> moderateBatch(List<CustomerRequestEvent> events, List<String> sources) {
+        log.info("Processing batch of {} events", events.size());
+        if (events.isEmpty()) return List.of();
+        
+        ProcessingResult[] results = new ProcessingResult[events.size()];
+        boolean transactional = sources != null;
+        Set<String> seenInBatch = new HashSet<>();
+        List<CustomerRequestEvent> toClaim = new ArrayList<>();
+        List<String> claimSources = transactional ? new ArrayList<>() : null;
+        for (int i = 0; i < events.size(); i++) {
+            CustomerRequestEvent event = events.get(i);
+            // a record replayed after an aborted transaction is in the filter already: only its claim tells it from a duplicate
+            if (!seenInBatch.add(event.getEventId()) || !transactional
+                    && processedEventFilter.check(event.getEventId()) == ProcessedEventFilter.Answer.PROCESSED) {
+                results[i] = toProcessingResult(event, evaluateDuplicate(event));
+            } else {
+                toClaim.add(event);
+                if (transactional) claimSources.add(sources.get(i));
+            }
+        }
+        
+        IdempotencyStore.BatchClaim claims = idempotencyStore.claimAll(toClaim, claimSources);
+        try {
+            return moderateClaimedBatch(events, results, claims, transactional);
+        } catch (RuntimeException e) {
+            // the poll is delivered again: claims left without an outcome must not hold the retry off
+            try {
+                idempotencyStore.releaseAll(claims.claimed().values());
+            } catch (Exception releaseError) {
+                log.warn("Failed to release claims of a failed batch, they expire with the lease: {}", releaseError.getMessage());
+            }
+            throw e;
+        }
+    }
+    
+    private List<ProcessingResult> moderateClaimedBatch(List<CustomerRequestEvent> events, ProcessingResult[] results,
+                                                       IdempotencyStore.BatchClaim claims, boolean transactional) {
+        // local rules first: only events they did not reject need enrichment
+        ModerationRulesEngine.ModerationEngineResult[] evaluated = new ModerationRulesEngine.ModerationEngineResult[events.size()];
+        List<String> toEnrich = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            CustomerRequestEvent event = events.get(i);
+            if (results[i] != null || !claims.claimed().containsKey(event.getEventId())) continue;
+            evaluated[i] = evaluateBeforeEnrichment(event);
+            if (evaluated[i] == null) toEnrich.add(event.getCustomerId());
+        }
+        Map<String, EnrichmentData> enrichment = toEnrich.isEmpty() ? Map.of()
+                : metrics.timeEnrichment("batch", () -> enrichmentClient.getEnrichmentDataBatch(toEnrich));
+        
+        List<IdempotencyStore.Completion> completions = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            if (results[i] != null) continue;
+            CustomerRequestEvent event = events.get(i);
+            IdempotencyStore.Claim claim = claims.claimed().get(event.getEventId());
+            if (claim == null) {
+                // left without a result: reported once the rest of the batch is done
+                if (claims.inProgress().contains(event.getEventId())) {
+                    if (transactional) throw new GlobalExceptionHandler.EventInProgressException(event.getEventId());
+                    continue;
+                }
+                if (transactional && !claims.duplicates().contains(event.getEventId())) {
+                    throw new GlobalExceptionHandler.OutcomeNotRecordedException(event.getEventId(),
+                            new IllegalStateException("Failed to claim event"));
+                }
+                results[i] = claims.duplicates().contains(event.getEventId())
+                        ? toProcessingResult(event, evaluateDuplicate(event))
+                        : errorResult(event, new IllegalStateException("Failed to claim event"));
+                continue;
+            }
+            try {
+                if (evaluated[i] == null) {
+                    evaluated[i] = rulesEngine.evaluate(event, enrichment.get(event.getCustomerId()),
+                            DuplicateEventRule.precomputed(false));
+                }
+                completions.add(new IdempotencyStore.Completion(claim, buildProcessedEvent(event, evaluated[i])));
+            } catch (Exception e) {
+                log.error("Error processing event {}: {}", event.getEventId(), e.getMessage());
+                saveErrorEvent(claim, event, e.getMessage()).join();
+                results[i] = errorResult(event, e);
+            }
+        }
+        
+        Set<String> notRecorded = idempotencyStore.completeAll(completions);
+        if (transactional && !notRecorded.isEmpty()) {
+            String first = events.stream().map(CustomerRequestEvent::getEventId).filter(notRecorded::contains)
+                    .findFirst().orElseThrow();
+            throw new GlobalExceptionHandler.OutcomeNotRecordedException(first,
+                    new IllegalStateException("Failed to record outcome of " + notRecorded.size() + " events"));
+        }
+        
+        String firstInProgress = null;
+        for (int i = 0; i < events.size(); i++) {
+            if (results[i] != null) continue;
+            CustomerRequestEvent event = events.get(i);
+            if (claims.inProgress().contains(event.getEventId())) {
+                if (firstInProgress == null) firstInProgress = event.getEventId();
+                continue;
+            }
+            if (notRecorded.contains(event.getEventId())) {
+                // claim lost to a takeover: the other consumer records and publishes the event
+                results[i] = toProcessingResult(event, evaluateDuplicate(event));
+                continue;
+            }
+            processedEventFilter.recordProcessed(event.getEventId());
+            try {
+                if (evaluated[i].isAllRulesPassed()) publishToOutputTopic(event, enrichment.get(event.getCustomerId()));
+                results[i] = toProcessingResult(event, evaluated[i]);
+            } catch (Exception e) {
+                log.error("Error publishing event {}: {}", event.getEventId(), e.getMessage());
+                results[i] = errorResult(event, e);
+            }
+        }
+        if (firstInProgress != null) throw new GlobalExceptionHandler.EventInProgressException(firstInProgress);
+        return List.of(results);
+    }
+    
+    /**
+     * Неблокирующая обработка: захват события и обогащение выполняются параллельно,
+     * повторы, запись в MongoDB и публикация в Kafka не занимают поток на время ожидания.
+     * Событие, которое обрабатывает другой обработчик, проверяется повторно, пока тот не запишет итог
+     * или не истечёт его lease-timeout; после этого остаётся {@link GlobalExceptionHandler.EventInProgressException}.
+     */
+    public Mono<ProcessingResult> processEventReactive(CustomerRequestEvent event) {
+        return Mono.defer(() -> {
+                    metrics.eventStarted(1);
+                    return Mono.defer(() -> moderateReactive(event)).retryWhen(inProgressRetry());
+                })
+                .doFinally(signal -> metrics.eventFinished(1));
+    }
+    
+    // Another consumer's claim is waited out: completed, the event is a duplicate; expired, it is taken over
+    private Retry inProgressRetry() {
+        return Retry.fixedDelay(leaseTimeout.toMillis() / inProgressRetry.toMillis() + 1, inProgressRetry)
+                .filter(GlobalExceptionHandler.EventInProgressException.class::isInstance)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+    
+    private Mono<ProcessingResult> moderateReactive(CustomerRequestEvent event) {
+        log.info("Processing event (reactive): {}, customer: {}", event.getEventId(), event.getCustomerId());
+        
+        if (processedEventFilter.check(event.getEventId()) == ProcessedEventFilter.Answer.PROCESSED) {
+            return Mono.fromSupplier(() -> toProcessingResult(event, evaluateDuplicate(event)));
+        }
+        ModerationRulesEngine.ModerationEngineResult earlyRejection = evaluateBeforeEnrichment(event);
+        if (earlyRejection != null) {
+            return idempotencyStore.recordReactive(buildProcessedEvent(event, earlyRejection))
+                    .map(status -> earlyRejectionResult(event, earlyRejection, status))
+                    .onErrorResume(e -> !(e instanceof GlobalExceptionHandler.EventInProgressException), e -> {
+                        log.error("Error recording event {}: {}", event.getEventId(), e.getMessage());
+                        return Mono.just(errorResult(event, e));
+                    });
         }
+        return Mono.zip(idempotencyStore.claimReactive(event),
+                        metrics.timeEnrichment("async", enrichmentClient.getEnrichmentDataAsync(event.getCustomerId())))
+                .flatMap(checks -> {
+                    IdempotencyStore.ClaimResult claimed = checks.getT1();
+                    if (claimed.status() == IdempotencyStore.ClaimStatus.COMPLETED) {
+                        return Mono.just(toProcessingResult(event, evaluateDuplicate(event)));
+                    }
+                    if (claimed.status() == IdempotencyStore.ClaimStatus.IN_PROGRESS) {
+                        return Mono.error(new GlobalExceptionHandler.EventInProgressException(event.getEventId()));
+                    }
+                    IdempotencyStore.Claim claim = claimed.claim();
+                    return moderateClaimed(event, claim, checks.getT2())
+                            .onErrorResume(e -> {
+                                log.error("Error processing event {}: {}", event.getEventId(), e.getMessage());
+                                return idempotencyStore.completeReactive(claim, buildErrorEvent(event, e.getMessage()))
+                                        .doOnNext(recorded -> {
+                                            if (recorded) processedEventFilter.recordProcessed(event.getEventId());
+                                        })
+                                        .doOnError(saveError -> log.error("Failed to save error event: {}", saveError.getMessage()))
+                                        .onErrorResume(saveError -> Mono.empty())
+                                        .thenReturn(errorResult(event, e));
+                            });
+                })
+                .onErrorResume(e -> !(e instanceof GlobalExceptionHandler.EventInProgressException), e -> {
+                    // the claim itself failed, there is nothing to record the error on
+                    log.error("Error claiming event {}: {}", event.getEventId(), e.getMessage());
+                    return Mono.just(errorResult(event, e));
+                });
+    }
+    
+    private Mono<ProcessingResult> moderateClaimed(CustomerRequestEvent event, IdempotencyStore.Claim claim,
+                                                   EnrichmentData enrichmentData) {
+        ModerationRulesEngine.ModerationEngineResult rulesResult = rulesEngine.evaluate(event, enrichmentData,
+                DuplicateEventRule.precomputed(false));
+        return idempotencyStore.completeReactive(claim, buildProcessedEvent(event, rulesResult))
+                .flatMap(completed -> {
+                    // a lost claim means another consumer took the event over, it publishes instead of us
+                    if (!completed) return Mono.just(toProcessingResult(event, evaluateDuplicate(event)));
+                    processedEventFilter.recordProcessed(event.getEventId());
+                    Mono<Void> publish = rulesResult.isAllRulesPassed()
+                            ? publishToOutputTopicReactive(event, enrichmentData) : Mono.empty();
+                    return publish.thenReturn(toProcessingResult(event, rulesResult));
+                });
     }
     
     @Async
@@ -69,13 +352,13 @@ public class ModerationService {
         return CompletableFuture.completedFuture(processEvent(event));
     }
     
-    private ProcessedEvent saveProcessedEvent(CustomerRequestEvent event, 
+    private ProcessedEvent buildProcessedEvent(CustomerRequestEvent event,
                                                ModerationRulesEngine.ModerationEngineResult rulesResult) {
         ProcessedEvent.ProcessingResult result = rulesResult.isAllRulesPassed() 
                 ? ProcessedEvent.ProcessingResult.PUBLISHED 
                 : mapRejectionReason(rulesResult.getFailedRule());
         
-        ProcessedEvent processedEvent = ProcessedEvent.builder()
+        return ProcessedEvent.builder()
                 .eventId(event.getEventId())
                 .customerId(event.getCustomerId())
                 .category(event.getCategory())
@@ -84,27 +367,106 @@ public class ModerationService {
                 .processedAt(LocalDateTime.now())
                 .expireAt(LocalDateTime.now().plusDays(30))
                 .build();
-        
-        return processedEventRepository.save(processedEvent);
     }
     
-    private void saveErrorEvent(CustomerRequestEvent event, String errorMessage) {
-        try {
-            processedEventRepository.save(ProcessedEvent.builder()
+    // A precomputed rejection is reported before any rule runs, enrichment is never touched
+    private ModerationRulesEngine.ModerationEngineResult evaluateDuplicate(CustomerRequestEvent event) {
+        return rulesEngine.evaluate(event, null, DuplicateEventRule.precomputed(true));
+    }
+    
+    // The duplicate check is left to the claim or outcome insert that follows
+    private ModerationRulesEngine.ModerationEngineResult evaluateBeforeEnrichment(CustomerRequestEvent event) {
+        return rulesEngine.evaluateBeforeEnrichment(event, DuplicateEventRule.precomputed(false));
+    }
+    
+    private ProcessingResult recordEarlyRejection(CustomerRequestEvent event,
+                                                  ModerationRulesEngine.ModerationEngineResult rejection) {
+        return earlyRejectionResult(event, rejection, idempotencyStore.record(buildProcessedEvent(event, rejection)));
+    }
+    
+    private ProcessingResult earlyRejectionResult(CustomerRequestEvent event,
+                                                  ModerationRulesEngine.ModerationEngineResult rejection,
+                                                  IdempotencyStore.ClaimStatus status) {
+        return switch (status) {
+            case CLAIMED -> {
+                processedEventFilter.recordProcessed(event.getEventId());
+                yield toProcessingResult(event, rejection);
+            }
+            case COMPLETED -> toProcessingResult(event, evaluateDuplicate(event));
+            case IN_PROGRESS -> throw new GlobalExceptionHandler.EventInProgressException(event.getEventId());
+        };
+    }
+    
+    private ProcessingResult toProcessingResult(CustomerRequestEvent event,
+                                                ModerationRulesEngine.ModerationEngineResult rulesResult) {
+        metrics.outcome(rulesResult.isAllRulesPassed() ? ProcessingStatus.PUBLISHED : ProcessingStatus.REJECTED,
+                rulesResult.getFailedRule() != null ? rulesResult.getFailedRule().getRuleName() : null);
+        if (rulesResult.isAllRulesPassed()) {
+            return ProcessingResult.builder()
                     .eventId(event.getEventId())
-                    .customerId(event.getCustomerId())
-                    .category(event.getCategory())
-                    .result(ProcessedEvent.ProcessingResult.REJECTED_NO_DATA)
-                    .rejectionReason("Processing error: " + errorMessage)
+                    .status(ProcessingStatus.PUBLISHED)
+                    .message("Event approved and published to Topic-2")
                     .processedAt(LocalDateTime.now())
-                    .expireAt(LocalDateTime.now().plusDays(30))
-                    .build());
-        } catch (Exception e) {
-            log.error("Failed to save error event: {}", e.getMessage());
+                    .build();
         }
+        return ProcessingResult.builder()
+                .eventId(event.getEventId())
+                .status(ProcessingStatus.REJECTED)
+                .message(rulesResult.getRejectionReason())
+                .rejectionDetails(rulesResult.getFailedRule() != null ? 
+                        rulesResult.getFailedRule().getDetails() : null)
+                .processedAt(LocalDateTime.now())
+                .build();
+    }
+    
+    private ProcessingResult errorResult(CustomerRequestEvent event, Throwable e) {
+        metrics.outcome(ProcessingStatus.ERROR, null);
+        return ProcessingResult.builder()
+                .eventId(event.getEventId())
+                .status(ProcessingStatus.ERROR)
+                .message("Processing error: " + e.getMessage())
+                .processedAt(LocalDateTime.now())
+                .build();
+    }
+    
+    // Without a claim there is nothing to record: the event either belongs to another consumer or was never reserved
+    private CompletableFuture<Boolean> saveErrorEvent(IdempotencyStore.Claim claim, CustomerRequestEvent event,
+                                                      String errorMessage) {
+        if (claim == null) return CompletableFuture.completedFuture(false);
+        return releaseOnWriteFailure(claim, processedEventWriter.complete(claim, buildErrorEvent(event, errorMessage)))
+                .thenApply(recorded -> {
+                    if (recorded) processedEventFilter.recordProcessed(event.getEventId());
+                    return recorded;
+                });
+    }
+    
+    // The event is delivered again after a failed write: its claim must not hold that attempt off until the lease
+    // runs out. If MongoDB is still down the release fails as well and the lease covers it
+    private <T> CompletableFuture<T> releaseOnWriteFailure(IdempotencyStore.Claim claim, CompletableFuture<T> write) {
+        return write.whenComplete((result, error) -> {
+            if (error == null) return;
+            try {
+                idempotencyStore.release(claim);
+            } catch (Exception releaseError) {
+                log.warn("Failed to release claim on event {}, it expires with the lease: {}",
+                        claim.eventId(), releaseError.getMessage());
+            }
+        });
     }
     
-    private ProcessedEvent.ProcessingResult mapRejectionReason(com.example.moderation.rules.RuleResult failedRule) {
+    private ProcessedEvent buildErrorEvent(CustomerRequestEvent event, String errorMessage) {
+        return ProcessedEvent.builder()
+                .eventId(event.getEventId())
+                .customerId(event.getCustomerId())
+                .category(event.getCategory())
+                .result(ProcessedEvent.ProcessingResult.REJECTED_NO_DATA)
+                .rejectionReason("Processing error: " + errorMessage)
+                .processedAt(LocalDateTime.now())
+                .expireAt(LocalDateTime.now().plusDays(30))
+                .build();
+    }
+    
+    private ProcessedEvent.ProcessingResult mapRejectionReason(RuleResult failedRule) {
         if (failedRule == null) return ProcessedEvent.ProcessingResult.REJECTED_NO_DATA;
         return switch (failedRule.getRuleName()) {
             case "DUPLICATE_EVENT_CHECK" -> ProcessedEvent.ProcessingResult.REJECTED_DUPLICATE;
@@ -115,7 +477,30 @@ public class ModerationService {
     }
     
     private void publishToOutputTopic(CustomerRequestEvent event, EnrichmentData enrichmentData) {
-        ModerationResultEvent resultEvent = ModerationResultEvent.builder()
+        Timer.Sample sample = metrics.startPublish();
+        kafkaTemplate.send(outputTopic, event.getCustomerId(), buildResultEvent(event, enrichmentData))
+                .whenComplete((result, ex) -> {
+                    metrics.stopPublish(sample, ex);
+                    if (ex != null) log.error("Failed to publish to Topic-2: {}", ex.getMessage());
+                });
+    }
+    
+    // Completes once the broker acknowledged the record; a failed send is logged like in the blocking path
+    private Mono<Void> publishToOutputTopicReactive(CustomerRequestEvent event, EnrichmentData enrichmentData) {
+        return Mono.defer(() -> {
+                    Timer.Sample sample = metrics.startPublish();
+                    return Mono.fromFuture(() -> kafkaTemplate.send(outputTopic, event.getCustomerId(),
+                                    buildResultEvent(event, enrichmentData)))
+                            .doOnSuccess(result -> metrics.stopPublish(sample, null))
+                            .doOnError(ex -> metrics.stopPublish(sample, ex));
+                })
+                .doOnError(ex -> log.error("Failed to publish to Topic-2: {}", ex.getMessage()))
+                .onErrorResume(ex -> Mono.empty())
+                .then();
+    }
+    
+    private ModerationResultEvent buildResultEvent(CustomerRequestEvent event, EnrichmentData enrichmentData) {
+        return ModerationResultEvent.builder()
                 .originalEventId(event.getEventId())
                 .requestId(event.getRequestId())
                 .customerId(event.getCustomerId())
@@ -126,11 +511,6 @@ public class ModerationService {
                 .enrichmentData(enrichmentData)
                 .processedAt(LocalDateTime.now())
                 .build();
-        
-        kafkaTemplate.send(outputTopic, event.getCustomerId(), resultEvent)
-                .whenComplete((result, ex) -> {
-                    if (ex != null) log.error("Failed to publish to Topic-2: {}", ex.getMessage());
-                });
     }
     
     @lombok.Data
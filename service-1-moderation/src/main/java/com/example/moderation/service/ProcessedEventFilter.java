@@ -0,0 +1,70 @@
+package com.example.moderation.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+// In-memory pre-check for the duplicate rule: a bounded set of IDs this instance recently saved answers
+// "processed" for redeliveries, which are then settled without touching MongoDB.
+// Anything else is UNKNOWN and left to the claim insert, which tells new events from duplicates
+// in the same write that claims them, so knowing an ID is new would save nothing.
+@Component
+public class ProcessedEventFilter {
+
+    public enum Answer { PROCESSED, UNKNOWN }
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentIds;
+    private final Map<Answer, Counter> answers;
+
+    public ProcessedEventFilter(@Value("${moderation.dedup.filter.enabled:false}") boolean enabled,
+                                @Value("${moderation.dedup.recent.max-size:100000}") long recentMaxSize,
+                                @Value("${moderation.dedup.recent.ttl:1h}") Duration recentTtl,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.recentIds = Caffeine.newBuilder().maximumSize(recentMaxSize).expireAfterWrite(recentTtl).build();
+        this.answers = Map.of(
+                Answer.PROCESSED, answerCounter(meterRegistry, Answer.PROCESSED),
+                Answer.UNKNOWN, answerCounter(meterRegistry, Answer.UNKNOWN));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Answer check(String eventId) {
+        if (!enabled) return Answer.UNKNOWN;
+        Answer answer = recentIds.getIfPresent(eventId) != null ? Answer.PROCESSED : Answer.UNKNOWN;
+        answers.get(answer).increment();
+        return answer;
+    }
+
+    // Called after the processed event has been written
+    public void recordProcessed(String eventId) {
+        if (!enabled) return;
+        recentIds.put(eventId, Boolean.TRUE);
+    }
+
+    // Deleted events must not be answered as processed
+    public void forget(String eventId) {
+        if (!enabled) return;
+        recentIds.invalidate(eventId);
+    }
+
+    public void forgetAll() {
+        if (!enabled) return;
+        recentIds.invalidateAll();
+    }
+
+    private static Counter answerCounter(MeterRegistry meterRegistry, Answer answer) {
+        return Counter.builder("moderation.dedup.filter.checks")
+                .tag("answer", answer.name().toLowerCase())
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.moderation.service;
+
+import com.example.moderation.exception.GlobalExceptionHandler;
+import com.example.moderation.model.ProcessedEvent;
+import com.example.moderation.repository.IdempotencyStore;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Write-behind sink for event outcomes: the listener thread enqueues and moves on, a single flusher
+// records the buffer with one unordered bulk update per batch (by size or flush interval).
+// The returned future completes once the outcome is durable, so offsets are acked only after that;
+// it fails with OutcomeNotRecordedException when the write did not go through.
+// Futures are completed on a small callback pool: their continuations (Topic-2 send, which may block
+// up to max.block.ms on producer metadata or a full buffer, and the offset ack) never hold up the next flush.
+// A full buffer blocks the caller, which stalls the poll loop instead of growing memory.
+@Slf4j
+@Component
+public class ProcessedEventWriter {
+
+    private record Pending(IdempotencyStore.Completion completion, CompletableFuture<Boolean> recorded) {
+    }
+
+    private final IdempotencyStore idempotencyStore;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final BlockingQueue<Pending> buffer;
+    private final Timer flushTimer;
+    private final DistributionSummary flushSize;
+    private final ExecutorService callbacks;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public ProcessedEventWriter(IdempotencyStore idempotencyStore,
+                                @Value("${moderation.persistence.write-behind.enabled:false}") boolean enabled,
+                                @Value("${moderation.persistence.write-behind.buffer-size:10000}") int bufferSize,
+                                @Value("${moderation.persistence.write-behind.batch-size:500}") int batchSize,
+                                @Value("${moderation.persistence.write-behind.flush-interval:10ms}") Duration flushInterval,
+                                @Value("${moderation.persistence.write-behind.callback-threads:4}") int callbackThreads,
+                                MeterRegistry meterRegistry) {
+        this.idempotencyStore = idempotencyStore;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.flushTimer = Timer.builder("moderation.persistence.flush")
+                .description("Latency of one bulk write of event outcomes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushSize = DistributionSummary.builder("moderation.persistence.flush.size")
+                .description("Event outcomes per bulk write")
+                .register(meterRegistry);
+        meterRegistry.gauge("moderation.persistence.buffer", buffer, BlockingQueue::size);
+        this.callbacks = enabled ? Executors.newFixedThreadPool(callbackThreads, callbackThreadFactory()) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        running = true;
+        flusher = new Thread(this::runFlusher, "processed-event-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+        log.info("Write-behind persistence enabled: bufferSize={}, batchSize={}, flushInterval={}",
+                buffer.remainingCapacity(), batchSize, flushInterval);
+    }
+
+    // Listener containers are stopped by now; whatever is buffered is still written
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (!enabled) return;
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+        callbacks.shutdown();
+        if (!callbacks.awaitTermination(30, TimeUnit.SECONDS)) callbacks.shutdownNow();
+    }
+
+    /**
+     * Records the outcome of a claimed event.
+     *
+     * @return completes with true once the outcome is written, with false if the claim was lost
+     * (another consumer took the event over and records it); fails with
+     * {@link GlobalExceptionHandler.OutcomeNotRecordedException} if the write failed
+     */
+    public CompletableFuture<Boolean> complete(IdempotencyStore.Claim claim, ProcessedEvent outcome) {
+        if (!enabled) {
+            try {
+                return CompletableFuture.completedFuture(idempotencyStore.complete(claim, outcome));
+            } catch (Exception e) {
+                log.error("Failed to record outcome of event {}: {}", claim.eventId(), e.getMessage());
+                return CompletableFuture.failedFuture(new GlobalExceptionHandler.OutcomeNotRecordedException(claim.eventId(), e));
+            }
+        }
+        Pending pending = new Pending(new IdempotencyStore.Completion(claim, outcome), new CompletableFuture<>());
+        try {
+            buffer.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new GlobalExceptionHandler.OutcomeNotRecordedException(claim.eventId(), e));
+        }
+        return pending.recorded();
+    }
+
+    private void runFlusher() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                Pending first = buffer.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                // linger for the rest of the interval unless the batch fills up first
+                long deadline = System.nanoTime() + flushInterval.toNanos();
+                while (batch.size() < batchSize) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) break;
+                    Pending next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(pending -> fail(pending, e));
+                return;
+            } catch (Exception e) {
+                log.error("Write-behind flush failed: {}", e.getMessage(), e);
+                batch.forEach(pending -> fail(pending, e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        List<IdempotencyStore.Completion> completions = batch.stream().map(Pending::completion).toList();
+        Timer.Sample sample = Timer.start();
+        Set<String> claimsLost;
+        try {
+            claimsLost = idempotencyStore.completeAll(completions);
+        } catch (Exception e) {
+            log.error("Bulk completion of {} events failed: {}", completions.size(), e.getMessage());
+            batch.forEach(pending -> fail(pending, e));
+            return;
+        } finally {
+            sample.stop(flushTimer);
+            flushSize.record(batch.size());
+        }
+        log.debug("Flushed {} event outcomes, {} claims lost", batch.size(), claimsLost.size());
+
+        for (Pending pending : batch) {
+            complete(pending, !claimsLost.contains(pending.completion().claim().eventId()));
+        }
+    }
+
+    // Continuations of the future run on the callback pool, not on the flusher
+    private void complete(Pending pending, boolean recorded) {
+        callbacks.execute(() -> pending.recorded().complete(recorded));
+    }
+
+    private void fail(Pending pending, Exception cause) {
+        GlobalExceptionHandler.OutcomeNotRecordedException error =
+                new GlobalExceptionHandler.OutcomeNotRecordedException(pending.completion().claim().eventId(), cause);
+        callbacks.execute(() -> pending.recorded().completeExceptionally(error));
+    }
+
+    private static ThreadFactory callbackThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "processed-event-callback-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.moderation.service;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+// Hedged requests (Dean & Barroso, "The Tail at Scale"): when the first attempt has not answered within
+// the recent latency percentile, one identical attempt is sent and whichever answers first wins, the other
+// is cancelled. A failure before the hedge delay is returned as is - hedging is for slow calls, retries
+// are for failed ones. Hedges are paid from a token budget refilled by a fraction of every request,
+// so the extra load stays within budgetRatio of the traffic however slow the callee gets.
+public class RequestHedger {
+
+    private static final int LATENCY_WINDOW = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final double budgetRatio;
+    private final double budgetBurst;
+    private final Consumer<String> onHedge;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private long samples;
+    private volatile long delayNanos;
+    private double tokens;
+
+    // percentile: of recent successful call latencies, clamped to minDelay..maxDelay (maxDelay until enough
+    // samples are in); budgetRatio: hedges per request at most, budgetBurst: hedges that may be sent at once;
+    // onHedge is told the fate of every hedge: won, lost, failed or no-budget
+    public RequestHedger(double percentile, Duration minDelay, Duration maxDelay, double budgetRatio,
+                         int budgetBurst, Consumer<String> onHedge) {
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.budgetRatio = budgetRatio;
+        this.budgetBurst = budgetBurst;
+        this.onHedge = onHedge;
+        this.delayNanos = maxDelayNanos;
+        this.tokens = budgetBurst;
+    }
+
+    // attempt: 0 for the first call, 1 for the hedge - lets the caller send the hedge to another instance
+    public <T> Mono<T> run(IntFunction<Mono<T>> attempt) {
+        return Mono.create(sink -> {
+            deposit();
+            Race<T> race = new Race<>(sink, attempt, System.nanoTime());
+            sink.onDispose(race.subscriptions);
+            race.start(0);
+            race.subscriptions.add(Mono.delay(Duration.ofNanos(delayNanos)).subscribe(tick -> race.hedge()));
+        });
+    }
+
+    public Duration getDelay() {
+        return Duration.ofNanos(delayNanos);
+    }
+
+    private synchronized void deposit() {
+        tokens = Math.min(budgetBurst, tokens + budgetRatio);
+    }
+
+    private synchronized boolean withdraw() {
+        if (tokens < 1) return false;
+        tokens--;
+        return true;
+    }
+
+    // The winner's time since the first attempt started: for a won hedge that is a lower bound
+    // of the first attempt's latency, which still keeps the percentile from drifting down
+    private synchronized void recordLatency(long nanos) {
+        latencies[(int) (samples++ % LATENCY_WINDOW)] = nanos;
+        if (samples >= RECOMPUTE_EVERY && samples % RECOMPUTE_EVERY == 0) {
+            long[] window = Arrays.copyOf(latencies, (int) Math.min(samples, LATENCY_WINDOW));
+            Arrays.sort(window);
+            long value = window[(int) Math.min(window.length - 1, Math.ceil(percentile * window.length) - 1)];
+            delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+        }
+    }
+
+    private final class Race<T> {
+
+        private final MonoSink<T> sink;
+        private final IntFunction<Mono<T>> attempt;
+        private final long startNanos;
+        private final Disposable.Composite subscriptions = Disposables.composite();
+        private boolean done;
+        private int started = 1;
+        private int failed;
+
+        Race(MonoSink<T> sink, IntFunction<Mono<T>> attempt, long startNanos) {
+            this.sink = sink;
+            this.attempt = attempt;
+            this.startNanos = startNanos;
+        }
+
+        // caller has counted the attempt in started
+        void start(int index) {
+            subscriptions.add(attempt.apply(index).subscribe(
+                    value -> success(index, value),
+                    this::failure,
+                    () -> success(index, null)));
+        }
+
+        void hedge() {
+            synchronized (this) {
+                // the first attempt answered or failed meanwhile
+                if (done) return;
+                if (!withdraw()) {
+                    onHedge.accept("no-budget");
+                    return;
+                }
+                started++;
+            }
+            start(1);
+        }
+
+        void success(int index, T value) {
+            boolean raced;
+            synchronized (this) {
+                if (done) return;
+                done = true;
+                raced = started > 1;
+            }
+            recordLatency(System.nanoTime() - startNanos);
+            if (raced) onHedge.accept(index == 1 ? "won" : "lost");
+            // cancel the other attempt and the hedge timer before the caller moves on
+            subscriptions.dispose();
+            if (value != null) sink.success(value); else sink.success();
+        }
+
+        // An attempt still running may yet answer; the error is returned once none is left
+        void failure(Throwable error) {
+            boolean raced;
+            synchronized (this) {
+                if (done || ++failed < started) return;
+                done = true;
+                raced = started > 1;
+            }
+            if (raced) onHedge.accept("failed");
+            subscriptions.dispose();
+            sink.error(error);
+        }
+    }
+}
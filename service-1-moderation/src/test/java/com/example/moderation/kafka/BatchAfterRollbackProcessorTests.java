@@ -0,0 +1,98 @@
+package com.example.moderation.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для обработки отката транзакционного poll: повторы записи с ошибкой и отправка в DLT.
+ */
+class BatchAfterRollbackProcessorTests {
+
+    private static final String TOPIC = "customer-requests";
+
+    @SuppressWarnings("unchecked")
+    private final Consumer<String, Object> consumer = mock(Consumer.class);
+    private final KafkaOperations<?, ?> kafkaOperations = mock(KafkaOperations.class);
+    private final List<ConsumerRecord<?, ?>> deadLetters = new CopyOnWriteArrayList<>();
+    // одна повторная доставка, затем DLT
+    private final BatchAfterRollbackProcessor processor = new BatchAfterRollbackProcessor(
+            (record, e) -> deadLetters.add(record), new FixedBackOff(0, 1), kafkaOperations);
+
+    @Test
+    @DisplayName("Запись из середины poll уходит в DLT после повторов и пропускается при повторе остальных")
+    void shouldDeadLetterFailedRecordAndReplayTheRest() {
+        List<ConsumerRecord<String, Object>> poll = List.of(record(0, 10), record(0, 11), record(1, 5));
+
+        processor.process(new ArrayList<>(poll), consumer, null, failedAt(1), false, ContainerProperties.EOSMode.V2);
+        assertTrue(deadLetters.isEmpty(), "первая неудача - повтор, а не DLT");
+
+        processor.process(new ArrayList<>(poll), consumer, null, failedAt(1), false, ContainerProperties.EOSMode.V2);
+        assertEquals(List.of(poll.get(1)), deadLetters);
+        // записи перед ней в той же партиции не зафиксированы: poll повторяется с начала
+        verify(consumer, times(2)).seek(new TopicPartition(TOPIC, 0), 10);
+        verify(consumer, times(2)).seek(new TopicPartition(TOPIC, 1), 5);
+        verify(kafkaOperations, never()).sendOffsetsToTransaction(any(), any());
+
+        assertEquals(List.of(poll.get(0), poll.get(2)), processor.filterBatch(new ArrayList<>(poll)));
+        // повтор зафиксирован: следующая доставка начинается дальше, запись больше не помнится
+        ConsumerRecord<String, Object> next = record(0, 12);
+        assertEquals(List.of(next), processor.filterBatch(new ArrayList<>(List.of(next))));
+        assertFalse(processor.filter(poll.get(1)));
+    }
+
+    @Test
+    @DisplayName("Первая в своей партиции запись после повторов уходит в DLT, её offset фиксируется сразу")
+    void shouldCommitRecoveredRecordThatLeadsItsPartition() {
+        List<ConsumerRecord<String, Object>> poll = List.of(record(0, 10), record(0, 11));
+
+        processor.process(new ArrayList<>(poll), consumer, null, failedAt(0), false, ContainerProperties.EOSMode.V2);
+        processor.process(new ArrayList<>(poll), consumer, null, failedAt(0), false, ContainerProperties.EOSMode.V2);
+
+        assertEquals(List.of(poll.get(0)), deadLetters);
+        verify(consumer).seek(new TopicPartition(TOPIC, 0), 11);
+        verify(kafkaOperations).sendOffsetsToTransaction(
+                eq(Map.of(new TopicPartition(TOPIC, 0), new OffsetAndMetadata(11))), any());
+        assertEquals(poll.subList(1, 2), processor.filterBatch(new ArrayList<>(poll.subList(1, 2))));
+    }
+
+    @Test
+    @DisplayName("Ошибка без индекса записи повторяет весь poll и ничего не отправляет в DLT")
+    void shouldReplayWholePollWithoutRecordIndex() {
+        List<ConsumerRecord<String, Object>> poll = List.of(record(0, 10), record(0, 11));
+        Exception failure = new ListenerExecutionFailedException("failed", new IllegalStateException("MongoDB unavailable"));
+
+        for (int i = 0; i < 3; i++) {
+            processor.process(new ArrayList<>(poll), consumer, null, failure, false, ContainerProperties.EOSMode.V2);
+        }
+
+        assertTrue(deadLetters.isEmpty());
+        verify(consumer, times(3)).seek(new TopicPartition(TOPIC, 0), 10);
+    }
+
+    private static Exception failedAt(int index) {
+        return new ListenerExecutionFailedException("failed",
+                new BatchListenerFailedException("record failed", new IllegalStateException("poison"), index));
+    }
+
+    private static ConsumerRecord<String, Object> record(int partition, long offset) {
+        return new ConsumerRecord<>(TOPIC, partition, offset, "CUST-1", "EVT-" + partition + "-" + offset);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.moderation.kafka;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для исполнителя с упорядочиванием по ключу.
+ */
+class KeyOrderedExecutorTests {
+
+    private final ExecutorService workers = Executors.newFixedThreadPool(8);
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor(workers);
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Задачи одного ключа выполняются в порядке отправки")
+    void shouldKeepOrderPerKey() throws Exception {
+        Map<String, List<Integer>> executed = new ConcurrentHashMap<>();
+        List<CompletableFuture<Integer>> futures = IntStream.range(0, 300)
+                .mapToObj(i -> executor.submit("customer-" + (i % 3), () -> CompletableFuture.supplyAsync(() -> {
+                    executed.computeIfAbsent("customer-" + (i % 3), key -> new CopyOnWriteArrayList<>()).add(i);
+                    return i;
+                }, workers)))
+                .toList();
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        executed.forEach((key, order) -> assertEquals(order.stream().sorted().toList(), order, key));
+        assertEquals(0, executor.keysInFlight());
+    }
+
+    @Test
+    @DisplayName("Задачи разных ключей выполняются параллельно")
+    void shouldRunDifferentKeysInParallel() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        List<CompletableFuture<Boolean>> futures = List.of("a", "b").stream()
+                .map(key -> executor.submit(key, () -> {
+                    bothStarted.countDown();
+                    try {
+                        return CompletableFuture.completedFuture(bothStarted.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                }))
+                .toList();
+
+        for (CompletableFuture<Boolean> future : futures) assertTrue(future.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Ошибка задачи не блокирует следующие задачи того же ключа")
+    void shouldContinueAfterFailure() throws Exception {
+        CompletableFuture<Integer> failed = executor.submit("a", () -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<Integer> next = executor.submit("a", () -> CompletableFuture.completedFuture(42));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(42, next.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.moderation.kafka;
+
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.model.EnrichmentData;
+import com.example.moderation.model.ModerationResultEvent;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для бинарного формата событий Topic-1 / Topic-2 и режима двойного чтения.
+ */
+class ModerationEventSerializationTests {
+
+    private static final String TOPIC = "topic";
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 2, 2, 10, 15, 30, 123_456_789);
+
+    @Test
+    @DisplayName("Событие Topic-1 восстанавливается из бинарного формата без потерь")
+    void shouldRoundTripRequestEvent() {
+        CustomerRequestEvent event = requestEvent();
+
+        byte[] data = BinaryEventCodec.encode(event);
+
+        assertEquals(BinaryEventCodec.VERSION, data[0]);
+        assertEquals(event, BinaryEventCodec.decode(data));
+    }
+
+    @Test
+    @DisplayName("Событие Topic-2 с данными обогащения и null-полями восстанавливается без потерь")
+    void shouldRoundTripResultEvent() {
+        ModerationResultEvent full = resultEvent(enrichmentData(List.of(
+                EnrichmentData.ActiveRequest.builder()
+                        .requestId("REQ-0")
+                        .category("BILLING")
+                        .subject("Счёт за февраль")
+                        .createdAt(TIMESTAMP.minusDays(1))
+                        .status(EnrichmentData.RequestStatus.OPEN)
+                        .build())));
+        ModerationResultEvent sparse = ModerationResultEvent.builder()
+                .originalEventId("EVT-002")
+                .status(ModerationResultEvent.ModerationStatus.APPROVED)
+                .enrichmentData(EnrichmentData.builder().customerId("CUST-002").errorMessage("Service-2 unavailable").build())
+                .build();
+
+        assertEquals(full, BinaryEventCodec.decode(BinaryEventCodec.encode(full)));
+        assertEquals(sparse, BinaryEventCodec.decode(BinaryEventCodec.encode(sparse)));
+    }
+
+    @Test
+    @DisplayName("Бинарный формат компактнее JSON")
+    void shouldBeSmallerThanJson() {
+        ModerationResultEvent event = resultEvent(enrichmentData(List.of()));
+
+        byte[] binary = serializer("binary").serialize(TOPIC, new RecordHeaders(), event);
+        byte[] json = serializer("json").serialize(TOPIC, new RecordHeaders(), event);
+
+        assertTrue(binary.length * 2 < json.length, binary.length + " vs " + json.length);
+    }
+
+    @Test
+    @DisplayName("В режиме двойного чтения принимаются и JSON, и бинарные сообщения")
+    void shouldReadBothFormatsWhenDualReadEnabled() {
+        CustomerRequestEvent event = requestEvent();
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        byte[] json = serializer("json").serialize(TOPIC, jsonHeaders, event);
+        byte[] binary = serializer("binary").serialize(TOPIC, new RecordHeaders(), event);
+
+        ModerationEventDeserializer deserializer = deserializer(true);
+
+        assertEquals(event, deserializer.deserialize(TOPIC, jsonHeaders, json));
+        assertEquals(event, deserializer.deserialize(TOPIC, new RecordHeaders(), binary));
+    }
+
+    @Test
+    @DisplayName("Без двойного чтения JSON отклоняется, а неизвестная версия формата всегда")
+    void shouldRejectJsonWithoutDualReadAndUnknownVersion() {
+        CustomerRequestEvent event = requestEvent();
+        RecordHeaders headers = new RecordHeaders();
+        byte[] json = serializer("json").serialize(TOPIC, headers, event);
+        byte[] future = BinaryEventCodec.encode(event);
+        future[0] = BinaryEventCodec.VERSION + 1;
+
+        ModerationEventDeserializer deserializer = deserializer(false);
+
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, headers, json));
+        assertThrows(SerializationException.class, () -> deserializer.deserialize(TOPIC, new RecordHeaders(), future));
+    }
+
+    private static ModerationEventSerializer serializer(String format) {
+        ModerationEventSerializer serializer = new ModerationEventSerializer();
+        serializer.configure(Map.of(ModerationEventSerializer.FORMAT, format), false);
+        return serializer;
+    }
+
+    private static ModerationEventDeserializer deserializer(boolean dualRead) {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ModerationEventDeserializer.DUAL_READ, dualRead);
+        config.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.moderation.model");
+        ModerationEventDeserializer deserializer = new ModerationEventDeserializer();
+        deserializer.configure(config, false);
+        return deserializer;
+    }
+
+    private static CustomerRequestEvent requestEvent() {
+        return CustomerRequestEvent.builder()
+                .eventId("EVT-001")
+                .customerId("CUST-001")
+                .requestId("REQ-001")
+                .category("BILLING")
+                .subject("Вопрос по счёту")
+                .priority(CustomerRequestEvent.Priority.HIGH)
+                .timestamp(TIMESTAMP)
+                .build();
+    }
+
+    private static EnrichmentData enrichmentData(List<EnrichmentData.ActiveRequest> requests) {
+        return EnrichmentData.builder()
+                .customerId("CUST-001")
+                .customerName("Иван Петров")
+                .customerEmail("ivan@example.com")
+                .customerLevel(EnrichmentData.CustomerLevel.VIP)
+                .activeRequests(requests)
+                .dataAvailable(true)
+                .build();
+    }
+
+    private static ModerationResultEvent resultEvent(EnrichmentData enrichmentData) {
+        return ModerationResultEvent.builder()
+                .originalEventId("EVT-001")
+                .requestId("REQ-001")
+                .customerId("CUST-001")
+                .category("BILLING")
+                .subject("Вопрос по счёту")
+                .priority(CustomerRequestEvent.Priority.HIGH)
+                .status(ModerationResultEvent.ModerationStatus.APPROVED)
+                .enrichmentData(enrichmentData)
+                .processedAt(TIMESTAMP)
+                .build();
+    }
+}
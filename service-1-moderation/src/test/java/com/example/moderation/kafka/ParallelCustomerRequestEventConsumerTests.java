@@ -0,0 +1,109 @@
+package com.example.moderation.kafka;
+
+import com.example.moderation.exception.GlobalExceptionHandler;
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.service.ModerationMetrics;
+import com.example.moderation.service.ModerationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для параллельного consumer: сбои Service-2 и отправка в DLT.
+ */
+class ParallelCustomerRequestEventConsumerTests {
+
+    private final ModerationService moderationService = mock(ModerationService.class);
+    private final List<Exception> deadLetters = new CopyOnWriteArrayList<>();
+    private final CountDownLatch acked = new CountDownLatch(1);
+    private final AtomicInteger acks = new AtomicInteger();
+    private ParallelCustomerRequestEventConsumer consumer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (consumer != null) consumer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Событие, на котором Service-2 падает при каждой попытке, отправляется в DLT и только потом подтверждается")
+    void shouldDeadLetterWhenServiceTwoKeepsFailing() throws Exception {
+        when(moderationService.submitEvent(any()))
+                .thenThrow(new GlobalExceptionHandler.EnrichmentServiceException("Service-2 unavailable"));
+        consumer = consumer((record, e) -> deadLetters.add(e));
+
+        consumer.consume(record(), () -> {
+            assertEquals(1, deadLetters.size(), "offset подтверждается после отправки в DLT");
+            acked.countDown();
+        });
+
+        assertTrue(acked.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(GlobalExceptionHandler.EnrichmentServiceException.class, deadLetters.get(0));
+        verify(moderationService, times(3)).submitEvent(any());
+    }
+
+    @Test
+    @DisplayName("Временный сбой Service-2 повторяется и не попадает в DLT")
+    void shouldRetryTransientServiceTwoFailure() throws Exception {
+        when(moderationService.submitEvent(any()))
+                .thenThrow(new GlobalExceptionHandler.EnrichmentServiceException("Service-2 unavailable"))
+                .thenReturn(CompletableFuture.completedFuture(ModerationService.ProcessingResult.builder()
+                        .eventId("EVT-1").status(ModerationService.ProcessingStatus.PUBLISHED).build()));
+        consumer = consumer((record, e) -> deadLetters.add(e));
+
+        consumer.consume(record(), acked::countDown);
+
+        assertTrue(acked.await(5, TimeUnit.SECONDS));
+        assertTrue(deadLetters.isEmpty());
+        verify(moderationService, times(2)).submitEvent(any());
+    }
+
+    @Test
+    @DisplayName("Если отправка в DLT не удалась, offset не подтверждается")
+    void shouldNotAckWhenDeadLetterFails() throws Exception {
+        when(moderationService.submitEvent(any()))
+                .thenThrow(new GlobalExceptionHandler.EnrichmentServiceException("Service-2 unavailable"));
+        CountDownLatch sendFailed = new CountDownLatch(1);
+        consumer = consumer((record, e) -> {
+            sendFailed.countDown();
+            throw new IllegalStateException("DLT unavailable");
+        });
+
+        consumer.consume(record(), acks::incrementAndGet);
+
+        assertTrue(sendFailed.await(5, TimeUnit.SECONDS));
+        // дожидается завершения обработчиков на пуле
+        consumer.shutdown();
+        assertEquals(0, acks.get());
+    }
+
+    private ParallelCustomerRequestEventConsumer consumer(ConsumerRecordRecoverer deadLetterRecoverer) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new ParallelCustomerRequestEventConsumer(moderationService, 4, Duration.ofMinutes(5), Duration.ofSeconds(5),
+                3, 10, deadLetterRecoverer, new StandardEnvironment(), new ModerationMetrics(meterRegistry), meterRegistry);
+    }
+
+    private static ConsumerRecord<String, CustomerRequestEvent> record() {
+        CustomerRequestEvent event = CustomerRequestEvent.builder()
+                .eventId("EVT-1")
+                .customerId("CUST-1")
+                .category("BILLING")
+                .build();
+        return new ConsumerRecord<>("customer-requests", 0, 42L, "CUST-1", event);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.moderation.kafka;
+
+import com.example.moderation.exception.GlobalExceptionHandler;
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.service.ModerationMetrics;
+import com.example.moderation.service.ModerationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для реактивного consumer: событие, захваченное другим обработчиком, не оставляет offset неподтверждённым.
+ */
+class ReactiveCustomerRequestEventConsumerTests {
+
+    private final ModerationService moderationService = mock(ModerationService.class);
+    private final ModerationMetrics metrics = new ModerationMetrics(new SimpleMeterRegistry());
+    private final List<Exception> deadLetters = new CopyOnWriteArrayList<>();
+    private final CountDownLatch acked = new CountDownLatch(1);
+
+    @Test
+    @DisplayName("Событие в работе у другого обработчика отправляется в DLT и только потом подтверждается")
+    void shouldDeadLetterEventInProgressThenAck() throws Exception {
+        when(moderationService.processEventReactive(any()))
+                .thenReturn(Mono.error(new GlobalExceptionHandler.EventInProgressException("EVT-1")));
+        ReactiveCustomerRequestEventConsumer consumer = new ReactiveCustomerRequestEventConsumer(
+                moderationService, metrics, (record, e) -> deadLetters.add(e));
+
+        consumer.consume(record(), () -> {
+            assertEquals(1, deadLetters.size(), "offset подтверждается после отправки в DLT");
+            acked.countDown();
+        });
+
+        assertTrue(acked.await(5, TimeUnit.SECONDS));
+        assertInstanceOf(GlobalExceptionHandler.EventInProgressException.class, deadLetters.get(0));
+        verify(moderationService, times(1)).processEventReactive(any());
+    }
+
+    @Test
+    @DisplayName("Если отправка в DLT не удалась, событие обрабатывается повторно и подтверждается")
+    void shouldReprocessWhenDeadLetterFails() throws Exception {
+        when(moderationService.processEventReactive(any()))
+                .thenReturn(Mono.error(new GlobalExceptionHandler.EventInProgressException("EVT-1")))
+                .thenReturn(Mono.just(ModerationService.ProcessingResult.builder()
+                        .eventId("EVT-1").status(ModerationService.ProcessingStatus.PUBLISHED).build()));
+        AtomicInteger sendAttempts = new AtomicInteger();
+        ConsumerRecordRecoverer failingRecoverer = (record, e) -> {
+            sendAttempts.incrementAndGet();
+            throw new IllegalStateException("DLT unavailable");
+        };
+        AtomicInteger acks = new AtomicInteger();
+        ReactiveCustomerRequestEventConsumer consumer = new ReactiveCustomerRequestEventConsumer(
+                moderationService, metrics, failingRecoverer);
+
+        consumer.consume(record(), () -> {
+            acks.incrementAndGet();
+            acked.countDown();
+        });
+
+        assertTrue(acked.await(5, TimeUnit.SECONDS));
+        assertEquals(1, sendAttempts.get());
+        assertEquals(1, acks.get());
+        verify(moderationService, times(2)).processEventReactive(any());
+    }
+
+    private static ConsumerRecord<String, CustomerRequestEvent> record() {
+        CustomerRequestEvent event = CustomerRequestEvent.builder()
+                .eventId("EVT-1")
+                .customerId("CUST-1")
+                .category("BILLING")
+                .build();
+        return new ConsumerRecord<>("customer-requests", 0, 42L, "CUST-1", event);
+    }
+}
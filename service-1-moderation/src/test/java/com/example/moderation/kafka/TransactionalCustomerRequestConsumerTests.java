@@ -0,0 +1,150 @@
+package com.example.moderation.kafka;
+
+import com.example.moderation.exception.GlobalExceptionHandler;
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.model.ModerationResultEvent;
+import com.example.moderation.model.ProcessedEvent;
+import com.example.moderation.repository.IdempotencyStore;
+import com.example.moderation.rules.impl.DuplicateEventRule;
+import com.example.moderation.service.EnrichmentClientService;
+import com.example.moderation.service.ModerationMetrics;
+import com.example.moderation.service.ModerationRulesEngine;
+import com.example.moderation.service.ModerationService;
+import com.example.moderation.service.ProcessedEventFilter;
+import com.example.moderation.service.ProcessedEventWriter;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для транзакционного consumer: повтор poll после прерванной транзакции.
+ */
+class TransactionalCustomerRequestConsumerTests {
+
+    private static final String OUTPUT_TOPIC = "moderated-requests";
+
+    private final MongoServer mongoServer = new MongoServer(new MemoryBackend());
+    private MongoClient mongoClient;
+    private com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient;
+    private MongoTemplate mongoTemplate;
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, Object> kafkaTemplate = mock(KafkaTemplate.class);
+    private TransactionalCustomerRequestConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        InetSocketAddress address = mongoServer.bind();
+        String uri = "mongodb://" + address.getHostString() + ":" + address.getPort();
+        mongoClient = MongoClients.create(uri);
+        reactiveMongoClient = com.mongodb.reactivestreams.client.MongoClients.create(uri);
+        mongoTemplate = new MongoTemplate(mongoClient, "moderation");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IdempotencyStore idempotencyStore = new IdempotencyStore(mongoTemplate,
+                new ReactiveMongoTemplate(reactiveMongoClient, "moderation"),
+                Duration.ofMinutes(5), Duration.ofDays(30), meterRegistry);
+        ModerationMetrics metrics = new ModerationMetrics(meterRegistry);
+        ModerationService moderationService = new ModerationService(mock(EnrichmentClientService.class),
+                new ModerationRulesEngine(List.of(new DuplicateEventRule(null, null))), idempotencyStore,
+                mock(ProcessedEventFilter.class), mock(ProcessedEventWriter.class), metrics, kafkaTemplate);
+        ReflectionTestUtils.setField(moderationService, "outputTopic", OUTPUT_TOPIC);
+        when(kafkaTemplate.send(anyString(), anyString(), any())).thenReturn(new CompletableFuture<>());
+        consumer = new TransactionalCustomerRequestConsumer(moderationService, metrics);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        reactiveMongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Повтор poll после прерванной транзакции перехватывает события по исходной записи и публикует каждое один раз")
+    void shouldReclaimReplayedPollBySource() {
+        List<ConsumerRecord<String, CustomerRequestEvent>> poll = List.of(record(0, "EVT-1"), record(1, "EVT-2"));
+        consumer.consumeBatch(poll);
+        verifyPublished("EVT-1", 1);
+        verifyPublished("EVT-2", 1);
+
+        // транзакция не зафиксирована: итоги в MongoDB записаны, публикации в Topic-2 отменены, poll приходит снова
+        clearInvocations(kafkaTemplate);
+        consumer.consumeBatch(poll);
+        verifyPublished("EVT-1", 1);
+        verifyPublished("EVT-2", 1);
+        assertEquals(ProcessedEvent.ProcessingResult.PUBLISHED,
+                mongoTemplate.findById("EVT-1", ProcessedEvent.class).getResult());
+
+        // то же событие из другой записи Topic-1 - дубликат
+        clearInvocations(kafkaTemplate);
+        consumer.consumeBatch(List.of(record(7, "EVT-1")));
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Событие с чужим захватом прерывает poll с индексом своей записи, повтор публикует остальные один раз")
+    void shouldFailAtRecordOfEventInProgress() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        mongoTemplate.insert(ProcessedEvent.builder()
+                .eventId("EVT-2")
+                .result(ProcessedEvent.ProcessingResult.PROCESSING)
+                .source("customer-requests-0@99")
+                .processedAt(now)
+                .expireAt(now.plusDays(30))
+                .build());
+        List<ConsumerRecord<String, CustomerRequestEvent>> poll = List.of(record(0, "EVT-1"), record(1, "EVT-2"));
+
+        BatchListenerFailedException failure = assertThrows(BatchListenerFailedException.class,
+                () -> consumer.consumeBatch(poll));
+        assertEquals(1, failure.getIndex());
+        assertInstanceOf(GlobalExceptionHandler.EventInProgressException.class, failure.getCause());
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+        // захват остального poll освобождён к повтору
+        assertNull(mongoTemplate.findById("EVT-1", ProcessedEvent.class));
+
+        // другой обработчик записал итог EVT-2
+        ProcessedEvent completed = mongoTemplate.findById("EVT-2", ProcessedEvent.class);
+        completed.setResult(ProcessedEvent.ProcessingResult.PUBLISHED);
+        mongoTemplate.save(completed);
+        consumer.consumeBatch(poll);
+        verifyPublished("EVT-1", 1);
+        verifyPublished("EVT-2", 0);
+    }
+
+    private void verifyPublished(String eventId, int times) {
+        verify(kafkaTemplate, times(times)).send(eq(OUTPUT_TOPIC), eq("CUST-1"),
+                argThat(result -> result instanceof ModerationResultEvent moderated
+                        && eventId.equals(moderated.getOriginalEventId())));
+    }
+
+    private static ConsumerRecord<String, CustomerRequestEvent> record(long offset, String eventId) {
+        CustomerRequestEvent event = CustomerRequestEvent.builder()
+                .eventId(eventId)
+                .customerId("CUST-1")
+                .category("BILLING")
+                .build();
+        return new ConsumerRecord<>("customer-requests", 0, offset, "CUST-1", event);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.moderation.repository;
+
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.model.ProcessedEvent;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для идемпотентной фиксации обработки событий (MongoDB в памяти).
+ */
+class IdempotencyStoreTests {
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    private final MongoServer mongoServer = new MongoServer(new MemoryBackend());
+    private MongoClient mongoClient;
+    private com.mongodb.reactivestreams.client.MongoClient reactiveMongoClient;
+    private MongoTemplate mongoTemplate;
+    private IdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        InetSocketAddress address = mongoServer.bind();
+        String uri = "mongodb://" + address.getHostString() + ":" + address.getPort();
+        mongoClient = MongoClients.create(uri);
+        reactiveMongoClient = com.mongodb.reactivestreams.client.MongoClients.create(uri);
+        mongoTemplate = new MongoTemplate(mongoClient, "moderation");
+        store = new IdempotencyStore(mongoTemplate, new ReactiveMongoTemplate(reactiveMongoClient, "moderation"),
+                LEASE, Duration.ofDays(30), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        reactiveMongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Новое событие захватывается, записанный итог делает его дубликатом")
+    void shouldClaimNewEventAndReportCompletedAsDuplicate() {
+        IdempotencyStore.ClaimResult first = store.claim(event("EVT-1"));
+        assertEquals(IdempotencyStore.ClaimStatus.CLAIMED, first.status());
+        assertTrue(store.complete(first.claim(), outcome("EVT-1")));
+
+        IdempotencyStore.ClaimResult second = store.claim(event("EVT-1"));
+        assertEquals(IdempotencyStore.ClaimStatus.COMPLETED, second.status());
+        assertNull(second.claim());
+    }
+
+    @Test
+    @DisplayName("Живой захват другого обработчика - IN_PROGRESS, а не дубликат")
+    void shouldReportLiveClaimInProgress() {
+        IdempotencyStore.ClaimResult first = store.claim(event("EVT-1"));
+
+        assertEquals(IdempotencyStore.ClaimStatus.IN_PROGRESS, store.claim(event("EVT-1")).status());
+        assertEquals(ProcessedEvent.ProcessingResult.PROCESSING, stored("EVT-1").getResult());
+        assertEquals(first.claim().claimedAt(), stored("EVT-1").getProcessedAt());
+    }
+
+    @Test
+    @DisplayName("Захват с истёкшим lease перехватывается, прежний владелец не может записать итог")
+    void shouldTakeOverStaleClaim() {
+        LocalDateTime staleAt = now().minus(LEASE).minusMinutes(1);
+        insert("EVT-1", ProcessedEvent.ProcessingResult.PROCESSING, staleAt, null);
+        IdempotencyStore.Claim stale = new IdempotencyStore.Claim("EVT-1", staleAt);
+
+        IdempotencyStore.ClaimResult takeover = store.claim(event("EVT-1"));
+
+        assertEquals(IdempotencyStore.ClaimStatus.CLAIMED, takeover.status());
+        assertTrue(takeover.claim().claimedAt().isAfter(staleAt));
+        assertFalse(store.complete(stale, outcome("EVT-1")), "токен прежнего владельца больше не совпадает");
+        assertTrue(store.complete(takeover.claim(), outcome("EVT-1")));
+        assertEquals(ProcessedEvent.ProcessingResult.PUBLISHED, stored("EVT-1").getResult());
+    }
+
+    @Test
+    @DisplayName("Повтор той же записи Topic-1 перехватывает событие даже с записанным итогом, другая запись - дубликат")
+    void shouldReclaimEventReplayedFromSameSource() {
+        insert("EVT-1", ProcessedEvent.ProcessingResult.PUBLISHED, now(), "customer-requests-0@5");
+
+        IdempotencyStore.BatchClaim otherSource = store.claimAll(List.of(event("EVT-1")), List.of("customer-requests-0@9"));
+        assertEquals(Set.of("EVT-1"), otherSource.duplicates());
+        assertTrue(otherSource.claimed().isEmpty());
+
+        IdempotencyStore.BatchClaim replay = store.claimAll(List.of(event("EVT-1")), List.of("customer-requests-0@5"));
+        IdempotencyStore.Claim reclaimed = replay.claimed().get("EVT-1");
+        assertNotNull(reclaimed);
+        assertEquals(ProcessedEvent.ProcessingResult.PROCESSING, stored("EVT-1").getResult());
+        assertTrue(store.complete(reclaimed, outcome("EVT-1")));
+    }
+
+    @Test
+    @DisplayName("Пакетный захват разбирает конфликты по группам: новые, дубликаты, в работе, перехваченные")
+    void shouldSortBatchClaimConflicts() {
+        insert("EVT-DONE", ProcessedEvent.ProcessingResult.PUBLISHED, now(), null);
+        insert("EVT-LIVE", ProcessedEvent.ProcessingResult.PROCESSING, now(), null);
+        insert("EVT-STALE", ProcessedEvent.ProcessingResult.PROCESSING, now().minus(LEASE).minusMinutes(1), null);
+
+        IdempotencyStore.BatchClaim claims = store.claimAll(
+                List.of(event("EVT-NEW"), event("EVT-DONE"), event("EVT-LIVE"), event("EVT-STALE")));
+
+        assertEquals(Set.of("EVT-NEW", "EVT-STALE"), claims.claimed().keySet());
+        assertEquals(Set.of("EVT-DONE"), claims.duplicates());
+        assertEquals(Set.of("EVT-LIVE"), claims.inProgress());
+    }
+
+    @Test
+    @DisplayName("completeAll записывает свои захваты и возвращает потерянные")
+    void shouldReportLostClaimsOnCompleteAll() {
+        Map<String, IdempotencyStore.Claim> claimed = store.claimAll(List.of(event("EVT-1"), event("EVT-2"))).claimed();
+        // EVT-2 перехвачен: время захвата в документе сменилось
+        mongoTemplate.save(marker("EVT-2", ProcessedEvent.ProcessingResult.PROCESSING, now().plusSeconds(1), null));
+
+        Set<String> notRecorded = store.completeAll(List.of(
+                new IdempotencyStore.Completion(claimed.get("EVT-1"), outcome("EVT-1")),
+                new IdempotencyStore.Completion(claimed.get("EVT-2"), outcome("EVT-2"))));
+
+        assertEquals(Set.of("EVT-2"), notRecorded);
+        assertEquals(ProcessedEvent.ProcessingResult.PUBLISHED, stored("EVT-1").getResult());
+        assertEquals(ProcessedEvent.ProcessingResult.PROCESSING, stored("EVT-2").getResult());
+    }
+
+    @Test
+    @DisplayName("Освобождение удаляет только свой незавершённый захват")
+    void shouldReleaseOnlyOwnPendingClaims() {
+        Map<String, IdempotencyStore.Claim> claimed = store.claimAll(
+                List.of(event("EVT-OWN"), event("EVT-TAKEN"), event("EVT-DONE"))).claimed();
+        mongoTemplate.save(marker("EVT-TAKEN", ProcessedEvent.ProcessingResult.PROCESSING, now().plusSeconds(1), null));
+        assertTrue(store.complete(claimed.get("EVT-DONE"), outcome("EVT-DONE")));
+
+        store.releaseAll(claimed.values());
+
+        assertNull(stored("EVT-OWN"));
+        assertNotNull(stored("EVT-TAKEN"), "захват другого обработчика не трогается");
+        assertEquals(ProcessedEvent.ProcessingResult.PUBLISHED, stored("EVT-DONE").getResult());
+
+        IdempotencyStore.Claim single = store.claim(event("EVT-SINGLE")).claim();
+        store.release(single);
+        assertNull(stored("EVT-SINGLE"));
+        assertEquals(IdempotencyStore.ClaimStatus.CLAIMED, store.claim(event("EVT-SINGLE")).status());
+    }
+
+    private void insert(String eventId, ProcessedEvent.ProcessingResult result, LocalDateTime processedAt, String source) {
+        mongoTemplate.insert(marker(eventId, result, processedAt, source));
+    }
+
+    private ProcessedEvent stored(String eventId) {
+        return mongoTemplate.findById(eventId, ProcessedEvent.class);
+    }
+
+    private static ProcessedEvent marker(String eventId, ProcessedEvent.ProcessingResult result,
+                                         LocalDateTime processedAt, String source) {
+        return ProcessedEvent.builder()
+                .eventId(eventId)
+                .customerId("CUST-1")
+                .result(result)
+                .source(source)
+                .processedAt(processedAt)
+                .expireAt(processedAt.plusDays(30))
+                .build();
+    }
+
+    private static ProcessedEvent outcome(String eventId) {
+        return marker(eventId, ProcessedEvent.ProcessingResult.PUBLISHED, now(), null);
+    }
+
+    private static CustomerRequestEvent event(String eventId) {
+        return CustomerRequestEvent.builder()
+                .eventId(eventId)
+                .customerId("CUST-1")
+                .category("BILLING")
+                .build();
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+}
@@ -171,6 +171,37 @@ class ModerationRulesTests {
         assertTrue(result.isPassed());
     }
     
+    // ============================================
+    // Тесты для изменения конфигурации
+    // ============================================
+    
+    @Test
+    @DisplayName("Частичное изменение конфигурации сохраняет непереданные поля и применяется к правилам")
+    void rulesConfig_shouldMergePartialUpdate() {
+        WorkingHoursRule rule = new WorkingHoursRule(config);
+        
+        config.update(new ModerationRulesConfig.Update(null, null, LocalTime.of(20, 0), null, null, null, null));
+        rule.refresh();
+        
+        assertEquals(List.of("BILLING", "COMPLAINT"), config.getWorkingHoursCategories());
+        assertEquals(LocalTime.of(9, 0), config.getWorkingHoursStart());
+        assertEquals(1, config.getMaxActiveRequestsPerCategory());
+        assertTrue(config.isActiveRequestsCheckEnabled());
+        // Понедельник, 19:00 - теперь рабочее время
+        assertTrue(rule.apply(createEvent("BILLING", LocalDateTime.of(2026, 2, 2, 19, 0)), null).isPassed());
+    }
+    
+    @Test
+    @DisplayName("Недопустимое изменение конфигурации отклоняется целиком")
+    void rulesConfig_shouldRejectInvalidUpdate() {
+        assertThrows(IllegalArgumentException.class, () -> config.update(new ModerationRulesConfig.Update(
+                List.of("TECHNICAL_SUPPORT"), LocalTime.of(19, 0), null, null, 2, null, null)));
+        
+        assertEquals(List.of("BILLING", "COMPLAINT"), config.getWorkingHoursCategories());
+        assertEquals(LocalTime.of(9, 0), config.getWorkingHoursStart());
+        assertEquals(1, config.getMaxActiveRequestsPerCategory());
+    }
+    
     // ============================================
     // Вспомогательные методы
     // ============================================
@@ -0,0 +1,92 @@
+package com.example.moderation.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для адаптивного ограничителя параллельных вызовов.
+ */
+class AdaptiveConcurrencyLimiterTests {
+
+    private final List<String> shed = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("Лимит растёт, пока RTT под нагрузкой не меняется")
+    void shouldGrowLimitWhileRttIsStable() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(4, 1, 50, 1000);
+
+        for (int round = 0; round < 20; round++) {
+            List<Sinks.One<String>> calls = new ArrayList<>();
+            List<CompletableFuture<String>> results = new ArrayList<>();
+            for (int i = 0; i < (int) limiter.getLimit(); i++) {
+                Sinks.One<String> call = Sinks.one();
+                calls.add(call);
+                results.add(limiter.run(call.asMono()).toFuture());
+            }
+            Thread.sleep(2);
+            calls.forEach(call -> call.tryEmitValue("ok"));
+            for (CompletableFuture<String> result : results) {
+                assertEquals("ok", result.get(1, TimeUnit.SECONDS));
+            }
+        }
+
+        assertTrue(limiter.getLimit() > 8, "limit " + limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Ошибки вызова уменьшают лимит, отказы circuit breaker - нет")
+    void shouldCutLimitOnFailuresOnly() {
+        AdaptiveConcurrencyLimiter limiter = limiter(16, 4, 64, 1000);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.run(Mono.error(new IllegalStateException("breaker open"))).onErrorResume(e -> Mono.empty()).block();
+        }
+        assertEquals(16, limiter.getLimit());
+
+        for (int i = 0; i < 30; i++) {
+            limiter.run(Mono.error(new RuntimeException("timeout"))).onErrorResume(e -> Mono.empty()).block();
+        }
+        assertEquals(4, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Вызов сверх лимита ждёт в очереди, при переполненной очереди отклоняется")
+    void shouldQueueThenShed() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = limiter(1, 1, 1, 1);
+        Sinks.One<String> first = Sinks.one();
+
+        CompletableFuture<String> running = limiter.run(first.asMono()).toFuture();
+        CompletableFuture<String> queued = limiter.run(Mono.just("queued")).toFuture();
+        CompletableFuture<String> rejected = limiter.run(Mono.just("rejected")).toFuture();
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(AdaptiveConcurrencyLimiter.LimitExceededException.class, error.getCause());
+        assertFalse(queued.isDone());
+        assertEquals(1, limiter.getQueued());
+
+        first.tryEmitValue("first");
+        assertEquals("first", running.get(1, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(1, TimeUnit.SECONDS));
+        assertEquals(List.of("queue-full"), shed);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit, int maxQueue) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, 1.5, 0.2, maxQueue,
+                Duration.ofSeconds(5), error -> error instanceof IllegalStateException, shed::add);
+    }
+}
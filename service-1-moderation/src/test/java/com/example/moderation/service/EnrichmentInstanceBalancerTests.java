@@ -0,0 +1,96 @@
+package com.example.moderation.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для балансировки вызовов между экземплярами Service-2.
+ */
+class EnrichmentInstanceBalancerTests {
+
+    private static final List<String> INSTANCES = List.of("http://s2-a:8081", "http://s2-b:8081", "http://s2-c:8081");
+
+    @Test
+    @DisplayName("Клиент закреплён за экземпляром, при удалении экземпляра переезжают только его клиенты")
+    void shouldKeepCustomersOnTheirInstance() {
+        EnrichmentInstanceBalancer balancer = balancer(INSTANCES);
+        Map<String, String> before = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            String customerId = "CUST-" + i;
+            before.put(customerId, balancer.choose(customerId, null).url());
+            assertEquals(before.get(customerId), balancer.choose(customerId, null).url());
+        }
+        assertEquals(Set.copyOf(INSTANCES), new HashSet<>(before.values()));
+
+        balancer.update(List.of("http://s2-a:8081", "http://s2-b:8081"));
+
+        before.forEach((customerId, url) -> {
+            String after = balancer.choose(customerId, null).url();
+            if (!url.equals("http://s2-c:8081")) assertEquals(url, after, customerId);
+        });
+    }
+
+    @Test
+    @DisplayName("Перегруженный экземпляр передаёт вызовы следующему по рангу")
+    void shouldSpillOverFromLoadedInstance() {
+        EnrichmentInstanceBalancer balancer = balancer(INSTANCES);
+        EnrichmentInstanceBalancer.Instance home = balancer.choose("CUST-1", null);
+        Sinks.Empty<Void> slow = Sinks.empty();
+
+        for (int i = 0; i < 5; i++) {
+            balancer.call(home, url -> slow.asMono()).subscribe();
+        }
+        assertEquals(5, home.outstanding());
+        assertNotEquals(home, balancer.choose("CUST-1", null));
+
+        slow.tryEmitEmpty();
+        assertEquals(0, home.outstanding());
+        assertEquals(home, balancer.choose("CUST-1", null));
+    }
+
+    @Test
+    @DisplayName("Исключённый по health check экземпляр не получает вызовов, пока все не исключены")
+    void shouldSkipEjectedInstances() {
+        EnrichmentInstanceBalancer balancer = balancer(INSTANCES);
+        EnrichmentInstanceBalancer.Instance home = balancer.choose("CUST-1", null);
+
+        balancer.recordHealth(home, false);
+        assertTrue(home.healthy());
+        balancer.recordHealth(home, false);
+        assertFalse(home.healthy());
+        for (int i = 0; i < 50; i++) {
+            assertNotEquals(home, balancer.choose("CUST-" + i % 2, null));
+            assertNotEquals(home, balancer.choose(null, null));
+        }
+        assertNotEquals(balancer.choose("CUST-1", null), balancer.choose("CUST-1", balancer.choose("CUST-1", null)));
+
+        balancer.instances().forEach(instance -> {
+            balancer.recordHealth(instance, false);
+            balancer.recordHealth(instance, false);
+        });
+        assertNotNull(balancer.choose("CUST-1", null));
+
+        balancer.recordHealth(home, true);
+        assertEquals(home, balancer.choose("CUST-1", null));
+        assertEquals("ok", balancer.call(home, url -> Mono.just("ok")).block());
+    }
+
+    private EnrichmentInstanceBalancer balancer(List<String> instances) {
+        return new EnrichmentInstanceBalancer("http://service-2:8081", instances, "", Duration.ofSeconds(10),
+                false, Duration.ofSeconds(5), Duration.ofSeconds(1), 2, 1.25, WebClient.create(),
+                new SimpleMeterRegistry());
+    }
+}
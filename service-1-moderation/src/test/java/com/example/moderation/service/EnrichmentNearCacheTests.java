@@ -0,0 +1,82 @@
+package com.example.moderation.service;
+
+import com.example.moderation.model.EnrichmentData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для локального кэша ответов Service-2: инвалидация во время загрузки.
+ */
+class EnrichmentNearCacheTests {
+
+    private final EnrichmentNearCache nearCache =
+            new EnrichmentNearCache(true, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+    private final List<CompletableFuture<EnrichmentData>> loads = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("Загрузка, начатая до инвалидации, не попадает в кэш, следующий запрос загружает заново")
+    void shouldNotStoreLoadInvalidatedInFlight() {
+        Function<String, Mono<EnrichmentData>> loader = customerId -> {
+            CompletableFuture<EnrichmentData> load = new CompletableFuture<>();
+            loads.add(load);
+            return Mono.fromFuture(load);
+        };
+
+        CompletableFuture<EnrichmentData> stale = nearCache.get("C1", loader).toFuture();
+        nearCache.invalidate("C1");
+        loads.get(0).complete(data("C1", "stale"));
+        assertEquals("stale", stale.join().getCustomerName());
+
+        CompletableFuture<EnrichmentData> fresh = nearCache.get("C1", loader).toFuture();
+        assertEquals(2, loads.size());
+        loads.get(1).complete(data("C1", "fresh"));
+        assertEquals("fresh", fresh.join().getCustomerName());
+        assertEquals("fresh", nearCache.get("C1", loader).block(Duration.ofSeconds(1)).getCustomerName());
+        assertEquals(2, loads.size());
+    }
+
+    @Test
+    @DisplayName("Инвалидация во время пакетного вызова: следующий запрос не присоединяется к нему, а загружает заново")
+    void shouldNotJoinCoalescedCallInvalidatedInFlight() {
+        List<CompletableFuture<Map<String, EnrichmentData>>> calls = new CopyOnWriteArrayList<>();
+        EnrichmentRequestCoalescer coalescer = new EnrichmentRequestCoalescer(customerIds -> {
+            CompletableFuture<Map<String, EnrichmentData>> call = new CompletableFuture<>();
+            calls.add(call);
+            return Mono.fromFuture(call);
+        }, customerId -> EnrichmentData.builder().customerId(customerId).build(), 1, Duration.ofMillis(20));
+        nearCache.addInvalidationListener(coalescer);
+
+        CompletableFuture<EnrichmentData> stale = nearCache.get("C1", coalescer::lookup).toFuture();
+        // изменение клиента приходит, пока пакетный вызов ещё в работе
+        nearCache.invalidate("C1");
+        CompletableFuture<EnrichmentData> fresh = nearCache.get("C1", coalescer::lookup).toFuture();
+        assertEquals(2, calls.size(), "после инвалидации клиент загружается заново");
+
+        // устаревший ответ приходит позже нового и достаётся только запросу до инвалидации
+        calls.get(1).complete(Map.of("C1", data("C1", "fresh")));
+        calls.get(0).complete(Map.of("C1", data("C1", "stale")));
+        assertEquals("stale", stale.join().getCustomerName());
+        assertEquals("fresh", fresh.join().getCustomerName());
+        assertEquals("fresh", nearCache.get("C1", coalescer::lookup).block(Duration.ofSeconds(1)).getCustomerName());
+        assertEquals(2, calls.size());
+    }
+
+    private static EnrichmentData data(String customerId, String customerName) {
+        return EnrichmentData.builder()
+                .customerId(customerId)
+                .customerName(customerName)
+                .dataAvailable(true)
+                .build();
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.moderation.service;
+
+import com.example.moderation.model.EnrichmentData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для объединения запросов к Service-2 в пакетные вызовы.
+ */
+class EnrichmentRequestCoalescerTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(1);
+
+    private final List<List<String>> calls = new CopyOnWriteArrayList<>();
+    private final List<CompletableFuture<Map<String, EnrichmentData>>> responses = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("Заполненный пакет отправляется сразу, не дожидаясь окна, и только один раз")
+    void shouldDispatchFullBatchOnceWithoutWaitingForWindow() throws InterruptedException {
+        EnrichmentRequestCoalescer coalescer = coalescer(this::respondWithAll, 2, Duration.ofMillis(200));
+
+        CompletableFuture<EnrichmentData> first = coalescer.lookup("C1").toFuture();
+        CompletableFuture<EnrichmentData> second = coalescer.lookup("C2").toFuture();
+
+        // окно 200 мс, а ответ уже есть: пакет отправлен по размеру
+        assertTrue(first.isDone() && second.isDone());
+        assertEquals("C1", first.join().getCustomerName());
+        assertEquals("C2", second.join().getCustomerName());
+        assertEquals(List.of(List.of("C1", "C2")), calls);
+
+        // таймер, взведённый первым запросом, не отправляет тот же пакет повторно
+        Thread.sleep(400);
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    @DisplayName("Неполный пакет отправляется по истечении окна")
+    void shouldDispatchPartialBatchWhenWindowElapses() {
+        EnrichmentRequestCoalescer coalescer = coalescer(this::respondWithAll, 10, Duration.ofMillis(20));
+
+        EnrichmentData data = coalescer.lookup("C1").block(TIMEOUT);
+
+        assertEquals("C1", data.getCustomerName());
+        assertEquals(List.of(List.of("C1")), calls);
+    }
+
+    @Test
+    @DisplayName("Запрос клиента, который уже загружается, получает тот же ответ без нового вызова")
+    void shouldJoinLookupInFlight() {
+        EnrichmentRequestCoalescer coalescer = coalescer(this::respondLater, 1, Duration.ofMillis(20));
+
+        CompletableFuture<EnrichmentData> first = coalescer.lookup("C1").toFuture();
+        CompletableFuture<EnrichmentData> joined = coalescer.lookup("C1").toFuture();
+        assertEquals(1, calls.size());
+
+        responses.get(0).complete(Map.of("C1", data("C1")));
+        assertSame(first.join(), joined.join());
+
+        // загрузка завершена: следующий запрос идёт в Service-2 заново
+        coalescer.lookup("C1").toFuture();
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    @DisplayName("Ошибка пакетного вызова передаётся каждому запросу пакета, повторный запрос загружает заново")
+    void shouldFailEveryLookupOfFailedBatch() {
+        EnrichmentRequestCoalescer coalescer = coalescer(this::respondLater, 2, Duration.ofMillis(200));
+
+        CompletableFuture<EnrichmentData> first = coalescer.lookup("C1").toFuture();
+        CompletableFuture<EnrichmentData> second = coalescer.lookup("C2").toFuture();
+        responses.get(0).completeExceptionally(new IllegalStateException("Service-2 unavailable"));
+
+        assertThrows(IllegalStateException.class, () -> coalescer.lookup("C1").block(TIMEOUT),
+                "неудачная загрузка не остаётся в работе");
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Исключение загрузчика до возврата Mono завершает пакет ошибкой, а не оставляет его в работе")
+    void shouldFailBatchWhenLoaderThrows() {
+        EnrichmentRequestCoalescer coalescer = coalescer(ids -> {
+            calls.add(ids);
+            throw new IllegalStateException("no Service-2 instance");
+        }, 1, Duration.ofMillis(20));
+
+        assertThrows(IllegalStateException.class, () -> coalescer.lookup("C1").block(TIMEOUT));
+        assertThrows(IllegalStateException.class, () -> coalescer.lookup("C1").block(TIMEOUT));
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    @DisplayName("Клиент, которого нет в ответе, получает результат по умолчанию")
+    void shouldResolveMissingCustomerToMissingResult() {
+        EnrichmentRequestCoalescer coalescer = coalescer(ids -> {
+            calls.add(ids);
+            return Mono.just(Map.of("C1", data("C1")));
+        }, 2, Duration.ofMillis(200));
+
+        CompletableFuture<EnrichmentData> found = coalescer.lookup("C1").toFuture();
+        CompletableFuture<EnrichmentData> missing = coalescer.lookup("C2").toFuture();
+
+        assertTrue(found.join().isDataAvailable());
+        assertFalse(missing.join().isDataAvailable());
+        assertEquals("C2", missing.join().getCustomerId());
+    }
+
+    private Mono<Map<String, EnrichmentData>> respondWithAll(List<String> customerIds) {
+        calls.add(customerIds);
+        return Mono.just(customerIds.stream().collect(Collectors.toMap(id -> id, this::data)));
+    }
+
+    private Mono<Map<String, EnrichmentData>> respondLater(List<String> customerIds) {
+        calls.add(customerIds);
+        CompletableFuture<Map<String, EnrichmentData>> response = new CompletableFuture<>();
+        responses.add(response);
+        return Mono.fromFuture(response);
+    }
+
+    private EnrichmentData data(String customerId) {
+        return EnrichmentData.builder()
+                .customerId(customerId)
+                .customerName(customerId)
+                .dataAvailable(true)
+                .build();
+    }
+
+    private static EnrichmentRequestCoalescer coalescer(
+            Function<List<String>, Mono<Map<String, EnrichmentData>>> batchLoader,
+            int maxBatchSize, Duration window) {
+        return new EnrichmentRequestCoalescer(batchLoader,
+                customerId -> EnrichmentData.builder().customerId(customerId).dataAvailable(false).build(),
+                maxBatchSize, window);
+    }
+}
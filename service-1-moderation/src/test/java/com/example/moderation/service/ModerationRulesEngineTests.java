@@ -0,0 +1,229 @@
+package com.example.moderation.service;
+
+import com.example.moderation.config.ModerationRulesConfig;
+import com.example.moderation.model.CustomerRequestEvent;
+import com.example.moderation.model.EnrichmentData;
+import com.example.moderation.rules.ModerationRule;
+import com.example.moderation.rules.RuleResult;
+import com.example.moderation.rules.impl.ActiveRequestRule;
+import com.example.moderation.rules.impl.DuplicateEventRule;
+import com.example.moderation.rules.impl.WorkingHoursRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для движка правил: план проверки, предвычисленные результаты, пересборка плана.
+ */
+class ModerationRulesEngineTests {
+
+    private ModerationRulesConfig config;
+    private ModerationRulesEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        config = new ModerationRulesConfig();
+        config.setWorkingHoursCategories(List.of("BILLING", "COMPLAINT"));
+        config.setWorkingHoursStart(LocalTime.of(9, 0));
+        config.setWorkingHoursEnd(LocalTime.of(18, 0));
+        config.setAllowMultipleActiveCategories(List.of("GENERAL_INQUIRY"));
+        config.setMaxActiveRequestsPerCategory(1);
+        // репозиторий не нужен: результат DuplicateEventRule всегда передаётся предвычисленным
+        engine = new ModerationRulesEngine(List.of(
+                new WorkingHoursRule(config), new ActiveRequestRule(config), new DuplicateEventRule(null, null)));
+    }
+
+    @Test
+    @DisplayName("Успешная проверка возвращает общий список результатов")
+    void shouldShareResultsWhenAllRulesPass() {
+        CustomerRequestEvent event = createEvent("BILLING", LocalDateTime.of(2026, 2, 2, 10, 0));
+
+        ModerationRulesEngine.ModerationEngineResult first = engine.evaluate(event, null, DuplicateEventRule.precomputed(false));
+        ModerationRulesEngine.ModerationEngineResult second = engine.evaluate(event, null, DuplicateEventRule.precomputed(false));
+
+        assertTrue(first.isAllRulesPassed());
+        assertEquals(3, first.getRulesEvaluated());
+        assertSame(first.getRuleResults(), second.getRuleResults());
+        assertEquals(List.of("WORKING_HOURS_CHECK", "DUPLICATE_EVENT_CHECK", "ACTIVE_REQUEST_CHECK"),
+                first.getRuleResults().stream().map(RuleResult::getRuleName).toList());
+    }
+
+    @Test
+    @DisplayName("Проверка останавливается на первом отклонившем правиле")
+    void shouldStopAtFirstRejection() {
+        CustomerRequestEvent event = createEvent("BILLING", LocalDateTime.of(2026, 2, 2, 10, 0));
+
+        ModerationRulesEngine.ModerationEngineResult result = engine.evaluate(event, null, DuplicateEventRule.precomputed(true));
+
+        assertFalse(result.isAllRulesPassed());
+        assertEquals(1, result.getRulesEvaluated());
+        assertEquals("DUPLICATE_EVENT_CHECK", result.getFailedRule().getRuleName());
+        assertEquals("Event already processed", result.getRejectionReason());
+    }
+
+    @Test
+    @DisplayName("После изменения конфигурации план пересобирается")
+    void shouldApplyConfigChangeAfterRebuild() {
+        CustomerRequestEvent nightEvent = createEvent("BILLING", LocalDateTime.of(2026, 2, 2, 22, 0));
+        EnrichmentData enrichment = EnrichmentData.builder().customerId("CUST-001").dataAvailable(true)
+                .activeRequests(List.of()).build();
+        assertFalse(engine.evaluate(nightEvent, enrichment, DuplicateEventRule.precomputed(false)).isAllRulesPassed());
+
+        config.setWorkingHoursCheckEnabled(false);
+        engine.rebuildPlan();
+
+        ModerationRulesEngine.ModerationEngineResult result =
+                engine.evaluate(nightEvent, enrichment, DuplicateEventRule.precomputed(false));
+        assertTrue(result.isAllRulesPassed());
+        assertEquals(2, result.getRulesEvaluated());
+        assertEquals(3, result.getTotalRules());
+    }
+
+    @Test
+    @DisplayName("Локальное правило отклоняет событие без данных обогащения")
+    void shouldRejectBeforeEnrichment() {
+        CustomerRequestEvent nightEvent = createEvent("BILLING", LocalDateTime.of(2026, 2, 2, 22, 0));
+        CustomerRequestEvent dayEvent = createEvent("BILLING", LocalDateTime.of(2026, 2, 2, 10, 0));
+
+        ModerationRulesEngine.ModerationEngineResult rejected =
+                engine.evaluateBeforeEnrichment(nightEvent, DuplicateEventRule.precomputed(false));
+
+        assertNotNull(rejected);
+        assertEquals("WORKING_HOURS_CHECK", rejected.getFailedRule().getRuleName());
+        assertEquals(1, rejected.getRulesEvaluated());
+        assertNull(engine.evaluateBeforeEnrichment(dayEvent, DuplicateEventRule.precomputed(false)));
+    }
+
+    @Test
+    @DisplayName("Переставляемые правила сортируются по статистике отклонений, закреплённые остаются на месте")
+    void shouldReorderCommutableRulesByRejections() {
+        ModerationRule pinned = new StubRule("PINNED", 1, false, false);
+        ModerationRule rarelyRejects = new StubRule("RARELY_REJECTS", 2, true, false);
+        ModerationRule alwaysRejects = new StubRule("ALWAYS_REJECTS", 3, true, true);
+        ModerationRulesEngine adaptive = new ModerationRulesEngine(
+                List.of(pinned, rarelyRejects, alwaysRejects), false, Duration.ofMinutes(1), 10, null, new SimpleMeterRegistry());
+        CustomerRequestEvent event = createEvent("BILLING", LocalDateTime.of(2026, 2, 2, 10, 0));
+
+        assertFalse(adaptive.reorder(), "недостаточно выполнений для перестановки");
+        for (int i = 0; i < 10; i++) {
+            assertEquals("ALWAYS_REJECTS", adaptive.evaluate(event, null).getFailedRule().getRuleName());
+        }
+
+        assertEquals(List.of("PINNED", "RARELY_REJECTS", "ALWAYS_REJECTS"), adaptive.getEvaluationOrder());
+        assertTrue(adaptive.reorder());
+        assertEquals(List.of("PINNED", "ALWAYS_REJECTS", "RARELY_REJECTS"), adaptive.getEvaluationOrder());
+        assertEquals(2, adaptive.evaluate(event, null).getRulesEvaluated());
+    }
+
+    @Test
+    @DisplayName("Параллельная проверка сообщает отклонение первого по плану правила и пропускает последующие")
+    void shouldReportFirstRejectionInPlanOrderWhenParallel() {
+        ExecutorService ruleExecutor = Executors.newFixedThreadPool(4);
+        try {
+            // первое по плану правило завершается только после того, как второе уже отклонило событие
+            CountDownLatch fastDone = new CountDownLatch(1);
+            StubRule slowRejects = new StubRule("SLOW_REJECTS", 1, true, true, fastDone, null);
+            StubRule fastRejects = new StubRule("FAST_REJECTS", 2, true, true, null, fastDone);
+            StubRule passes = new StubRule("PASSES", 3, false, false, null, null);
+            ModerationRulesEngine parallel = new ModerationRulesEngine(
+                    List.of(slowRejects, fastRejects, passes), false, Duration.ofMinutes(1), 10, ruleExecutor, new SimpleMeterRegistry());
+            CustomerRequestEvent event = createEvent("BILLING", LocalDateTime.of(2026, 2, 2, 10, 0));
+
+            ModerationRulesEngine.ModerationEngineResult result = parallel.evaluate(event, null);
+
+            assertTrue(slowRejects.released, "независимые правила выполняются одновременно");
+            assertEquals("SLOW_REJECTS", result.getFailedRule().getRuleName());
+            assertEquals(1, result.getRulesEvaluated());
+            assertEquals(1, fastRejects.calls.get());
+            assertEquals(0, passes.calls.get(), "правило после отклонения не выполняется");
+        } finally {
+            ruleExecutor.shutdownNow();
+        }
+    }
+
+    private static final class StubRule implements ModerationRule {
+        private final String name;
+        private final int priority;
+        private final boolean commutable;
+        private final boolean rejects;
+        private final boolean independent;
+        // awaits: ждёт перед ответом (не дольше 5 секунд), signals: отпускается после ответа
+        private final CountDownLatch awaits;
+        private final CountDownLatch signals;
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile boolean released;
+
+        StubRule(String name, int priority, boolean commutable, boolean rejects) {
+            this.name = name;
+            this.priority = priority;
+            this.commutable = commutable;
+            this.rejects = rejects;
+            this.independent = false;
+            this.awaits = null;
+            this.signals = null;
+        }
+
+        StubRule(String name, int priority, boolean independent, boolean rejects,
+                 CountDownLatch awaits, CountDownLatch signals) {
+            this.name = name;
+            this.priority = priority;
+            this.commutable = false;
+            this.rejects = rejects;
+            this.independent = independent;
+            this.awaits = awaits;
+            this.signals = signals;
+        }
+
+        @Override
+        public RuleResult apply(CustomerRequestEvent event, EnrichmentData enrichmentData) {
+            calls.incrementAndGet();
+            if (awaits != null) {
+                try {
+                    released = awaits.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            RuleResult result = rejects ? RuleResult.rejected(name, "rejected") : RuleResult.passed(name);
+            if (signals != null) signals.countDown();
+            return result;
+        }
+
+        @Override
+        public boolean isIndependent() { return independent; }
+
+        @Override
+        public String getRuleName() { return name; }
+
+        @Override
+        public int getPriority() { return priority; }
+
+        @Override
+        public boolean isCommutable() { return commutable; }
+    }
+
+    private CustomerRequestEvent createEvent(String category, LocalDateTime timestamp) {
+        return CustomerRequestEvent.builder()
+                .eventId("EVT-001")
+                .customerId("CUST-001")
+                .requestId("REQ-001")
+                .category(category)
+                .subject("Test subject")
+                .priority(CustomerRequestEvent.Priority.MEDIUM)
+                .timestamp(timestamp)
+                .build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.moderation.service;
+
+import com.example.moderation.exception.GlobalExceptionHandler;
+import com.example.moderation.model.ProcessedEvent;
+import com.example.moderation.repository.IdempotencyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit тесты для отложенной записи итогов событий.
+ */
+class ProcessedEventWriterTests {
+
+    private final IdempotencyStore idempotencyStore = mock(IdempotencyStore.class);
+    private ProcessedEventWriter writer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) writer.stop();
+    }
+
+    @Test
+    @DisplayName("Ошибка bulk-записи завершает future всех событий пачки исключением, а не false")
+    void shouldFailFuturesWhenFlushFails() {
+        when(idempotencyStore.completeAll(anyList())).thenThrow(new IllegalStateException("MongoDB unavailable"));
+        writer = writer(10, 10);
+
+        CompletableFuture<Boolean> first = writer.complete(claim("EVT-1"), outcome("EVT-1"));
+        CompletableFuture<Boolean> second = writer.complete(claim("EVT-2"), outcome("EVT-2"));
+
+        for (CompletableFuture<Boolean> recorded : List.of(first, second)) {
+            ExecutionException error = assertThrows(ExecutionException.class, () -> recorded.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(GlobalExceptionHandler.OutcomeNotRecordedException.class, error.getCause());
+        }
+    }
+
+    @Test
+    @DisplayName("Потерянный захват завершает future значением false, остальные события пачки записаны")
+    void shouldReportLostClaimsSeparately() throws Exception {
+        when(idempotencyStore.completeAll(anyList())).thenReturn(Set.of("EVT-2"));
+        writer = writer(10, 2);
+
+        CompletableFuture<Boolean> first = writer.complete(claim("EVT-1"), outcome("EVT-1"));
+        CompletableFuture<Boolean> second = writer.complete(claim("EVT-2"), outcome("EVT-2"));
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertFalse(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Заполненный буфер блокирует вызывающего, пока запись не освободит место")
+    void shouldBlockCallerWhenBufferIsFull() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(idempotencyStore.completeAll(anyList())).thenAnswer(invocation -> {
+            flushing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Set.of();
+        });
+        writer = writer(1, 1);
+
+        // первое событие у flusher (запись стоит), второе занимает единственное место в буфере
+        CompletableFuture<Boolean> first = writer.complete(claim("EVT-1"), outcome("EVT-1"));
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = writer.complete(claim("EVT-2"), outcome("EVT-2"));
+        CompletableFuture<CompletableFuture<Boolean>> third = new CompletableFuture<>();
+        Thread caller = new Thread(() -> third.complete(writer.complete(claim("EVT-3"), outcome("EVT-3"))));
+        caller.start();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (caller.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(Thread.State.WAITING, caller.getState(), "вызывающий ждёт места в буфере");
+        assertFalse(third.isDone());
+
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertTrue(third.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+    }
+
+    private ProcessedEventWriter writer(int bufferSize, int batchSize) {
+        ProcessedEventWriter started = new ProcessedEventWriter(idempotencyStore, true, bufferSize, batchSize,
+                Duration.ofMillis(10), 2, new SimpleMeterRegistry());
+        started.start();
+        return started;
+    }
+
+    private static IdempotencyStore.Claim claim(String eventId) {
+        return new IdempotencyStore.Claim(eventId, LocalDateTime.of(2026, 2, 2, 10, 0));
+    }
+
+    private static ProcessedEvent outcome(String eventId) {
+        return ProcessedEvent.builder()
+                .eventId(eventId)
+                .result(ProcessedEvent.ProcessingResult.PUBLISHED)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.moderation.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для хеджирования запросов к Service-2.
+ */
+class RequestHedgerTests {
+
+    private static final Duration SLOW = Duration.ofSeconds(2);
+
+    private final List<String> outcomes = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("Быстрый ответ не порождает повторного запроса")
+    void shouldNotHedgeFastCall() {
+        RequestHedger hedger = hedger(1.0, 10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = hedger.run(attempt -> {
+            attempts.incrementAndGet();
+            return Mono.just("fast");
+        }).block(Duration.ofSeconds(1));
+
+        assertEquals("fast", result);
+        assertEquals(1, attempts.get());
+        assertTrue(outcomes.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Медленный запрос дублируется, выигрывает первый ответ, проигравший отменяется")
+    void shouldHedgeSlowCall() {
+        RequestHedger hedger = hedger(1.0, 10);
+        AtomicInteger cancelled = new AtomicInteger();
+
+        String result = hedger.run(attempt -> attempt == 0
+                ? Mono.delay(SLOW).map(tick -> "primary").doOnCancel(cancelled::incrementAndGet)
+                : Mono.just("hedge")).block(Duration.ofSeconds(1));
+
+        assertEquals("hedge", result);
+        assertEquals(1, cancelled.get());
+        assertEquals(List.of("won"), outcomes);
+    }
+
+    @Test
+    @DisplayName("Ошибка до истечения задержки возвращается без повторного запроса")
+    void shouldReturnEarlyFailureWithoutHedge() {
+        RequestHedger hedger = hedger(1.0, 10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> hedger.run(attempt -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("boom"));
+        }).block(Duration.ofSeconds(1)));
+
+        assertEquals("boom", error.getMessage());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    @DisplayName("Исчерпанный бюджет ограничивает число повторных запросов")
+    void shouldRespectBudget() {
+        RequestHedger hedger = hedger(0.0, 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("primary", hedger.run(attempt -> attempt == 0
+                    ? Mono.delay(Duration.ofMillis(100)).map(tick -> "primary")
+                    : Mono.<String>never()).block(Duration.ofSeconds(1)));
+        }
+
+        assertEquals(List.of("lost", "no-budget", "no-budget"), outcomes);
+    }
+
+    private RequestHedger hedger(double budgetRatio, int budgetBurst) {
+        return new RequestHedger(0.95, Duration.ofMillis(10), Duration.ofMillis(20), budgetRatio, budgetBurst,
+                outcomes::add);
+    }
+}
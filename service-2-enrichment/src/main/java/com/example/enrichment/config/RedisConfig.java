@@ -1,17 +1,41 @@
 package com.example.enrichment.config;
 
+import com.example.enrichment.service.EnrichmentL1Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.repository.configuration.EnableRedisRepositories;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+import java.util.Properties;
+
+@Slf4j
 @Configuration
 @EnableRedisRepositories(basePackages = "com.example.enrichment.repository")
 public class RedisConfig {
     
+    private static final String NOTIFY_KEYSPACE_EVENTS = "notify-keyspace-events";
+    // K: keyspace channel; g: del/expire, h: hash writes (the repository's HMSET), x: TTL expiry
+    private static final String REQUIRED_EVENTS = "Kghx";
+    
+    @Value("${enrichment.cache.l1.configure-keyspace-events:true}")
+    private boolean configureKeyspaceEvents;
+    
+    @Value("${enrichment.cache.l1.subscribe-retry-interval:5s}")
+    private Duration subscribeRetryInterval;
+    
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
@@ -24,4 +48,71 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+    
+    // Invalidates L1 entries changed by any writer, other Service-2 instances included:
+    // every customer:* key change is published on __keyspace@<db>__:customer:*
+    @Bean
+    @ConditionalOnProperty(name = "enrichment.cache.l1.enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer keyspaceListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                   EnrichmentL1Cache l1Cache) {
+        // started once the application is up, see startKeyspaceListener
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(l1Cache, new PatternTopic("__keyspace@*__:customer:*"));
+        return container;
+    }
+    
+    // Redis being down at startup must not keep Service-2 from starting: the subscription is retried
+    // in the background, until it is up L1 entries are bounded by their TTL alone
+    @EventListener(ApplicationReadyEvent.class)
+    public void startKeyspaceListener(ApplicationReadyEvent event) {
+        event.getApplicationContext().getBeanProvider(RedisMessageListenerContainer.class).ifAvailable(container -> {
+            Thread subscriber = new Thread(() -> {
+                while (!container.isRunning() && !Thread.currentThread().isInterrupted()) {
+                    try {
+                        if (configureKeyspaceEvents) enableKeyspaceEvents(container.getConnectionFactory());
+                        container.start();
+                        log.info("Subscribed to Redis keyspace notifications for L1 invalidation");
+                    } catch (Exception e) {
+                        log.warn("Redis keyspace subscription failed, retrying in {}: {}", subscribeRetryInterval, e.getMessage());
+                        try {
+                            Thread.sleep(subscribeRetryInterval.toMillis());
+                        } catch (InterruptedException interrupted) {
+                            return;
+                        }
+                    }
+                }
+            }, "keyspace-subscriber");
+            subscriber.setDaemon(true);
+            subscriber.start();
+        });
+    }
+    
+    // Redis publishes no keyspace events by default. Flags set by someone else are kept; where CONFIG is
+    // not allowed (managed Redis) the flags have to be set on the server, the L1 then relies on its TTL
+    private void enableKeyspaceEvents(RedisConnectionFactory connectionFactory) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Properties config = connection.serverCommands().getConfig(NOTIFY_KEYSPACE_EVENTS);
+            String current = config != null ? config.getProperty(NOTIFY_KEYSPACE_EVENTS, "") : "";
+            StringBuilder events = new StringBuilder(current);
+            for (char flag : REQUIRED_EVENTS.toCharArray()) {
+                boolean covered = current.indexOf(flag) >= 0 || (flag != 'K' && current.indexOf('A') >= 0);
+                if (!covered) events.append(flag);
+            }
+            if (!events.toString().equals(current)) {
+                connection.serverCommands().setConfig(NOTIFY_KEYSPACE_EVENTS, events.toString());
+                log.info("Redis {} set to '{}' for L1 invalidation", NOTIFY_KEYSPACE_EVENTS, events);
+            }
+        } catch (RedisConnectionFailureException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Cannot enable Redis keyspace notifications, L1 entries of other instances' writes expire by TTL only: {}",
+                    e.getMessage());
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.enrichment.controller;
 
+import com.example.enrichment.dto.BatchEnrichmentRequest;
 import com.example.enrichment.dto.CustomerRequest;
 import com.example.enrichment.dto.EnrichmentResponse;
 import com.example.enrichment.service.EnrichmentService;
@@ -39,6 +40,14 @@ public class EnrichmentController {
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping("/customers:batch")
+    @Operation(summary = "Получить данные нескольких клиентов")
+    public ResponseEntity<List<EnrichmentResponse>> getCustomersEnrichmentBatch(
+            @Valid @RequestBody BatchEnrichmentRequest request) {
+        log.info("Get customers batch: {}", request.getCustomerIds().size());
+        return ResponseEntity.ok(enrichmentService.getCustomerEnrichmentBatch(request.getCustomerIds()));
+    }
+    
     @PostMapping("/customer")
     @Operation(summary = "Создать данные клиента")
     public ResponseEntity<EnrichmentResponse> createCustomer(@Valid @RequestBody CustomerRequest request) {
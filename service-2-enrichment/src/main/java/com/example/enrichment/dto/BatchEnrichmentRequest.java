@@ -0,0 +1,21 @@
+package com.example.enrichment.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchEnrichmentRequest {
+    
+    @NotEmpty(message = "Customer IDs are required")
+    @Size(max = 500, message = "At most 500 customer IDs per request")
+    private List<String> customerIds;
+}
@@ -16,7 +16,7 @@ import java.util.Optional;
  * - save, findById, findAll, delete, count, existsById
  */
 @Repository
-public interface CustomerRepository extends CrudRepository<CustomerData, String> {
+public interface CustomerRepository extends CrudRepository<CustomerData, String>, CustomerRepositoryCustom {
     
     /**
      * Поиск клиента по email.
@@ -0,0 +1,15 @@
+package com.example.enrichment.repository;
+
+import com.example.enrichment.model.CustomerData;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface CustomerRepositoryCustom {
+    
+    /**
+     * Читает несколько клиентов за один сетевой round trip (HGETALL в pipeline).
+     * Отсутствующие клиенты в результат не попадают.
+     */
+    Map<String, CustomerData> findAllByIdPipelined(Collection<String> customerIds);
+}
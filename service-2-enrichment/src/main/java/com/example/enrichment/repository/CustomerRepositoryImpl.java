@@ -0,0 +1,52 @@
+package com.example.enrichment.repository;
+
+import com.example.enrichment.model.CustomerData;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.convert.RedisConverter;
+import org.springframework.data.redis.core.convert.RedisData;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Same key layout and mapping as the Spring Data repository (@RedisHash("customer")), read through one pipeline
+@RequiredArgsConstructor
+public class CustomerRepositoryImpl implements CustomerRepositoryCustom {
+    
+    private static final String KEYSPACE = "customer";
+    
+    private final RedisConnectionFactory connectionFactory;
+    private final RedisConverter redisConverter;
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, CustomerData> findAllByIdPipelined(Collection<String> customerIds) {
+        if (customerIds.isEmpty()) return Map.of();
+        
+        List<String> ids = List.copyOf(customerIds);
+        List<Object> replies;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            for (String id : ids) {
+                connection.hashCommands().hGetAll((KEYSPACE + ":" + id).getBytes(StandardCharsets.UTF_8));
+            }
+            replies = connection.closePipeline();
+        }
+        
+        Map<String, CustomerData> found = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            Map<byte[], byte[]> raw = (Map<byte[], byte[]>) replies.get(i);
+            if (raw == null || raw.isEmpty()) continue;
+            
+            RedisData data = new RedisData(raw);
+            data.setId(ids.get(i));
+            data.setKeyspace(KEYSPACE);
+            found.put(ids.get(i), redisConverter.read(CustomerData.class, data));
+        }
+        return found;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.enrichment.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+// Tells consumers with a local copy of customer data (moderation near-cache) that a customer changed
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CustomerChangeNotifier {
+    
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    
+    @Value("${kafka.topics.customer-changes}")
+    private String customerChangesTopic;
+    
+    public void customerChanged(String customerId, ChangeType changeType) {
+        try {
+            kafkaTemplate.send(customerChangesTopic, customerId, changeType.name())
+                    .whenComplete((result, ex) -> {
+                        if (ex != null) log.warn("Failed to publish change of customer {}: {}", customerId, ex.getMessage());
+                    });
+        } catch (Exception e) {
+            log.warn("Failed to publish change of customer {}: {}", customerId, e.getMessage());
+        }
+    }
+    
+    public enum ChangeType { SAVED, UPDATED, DELETED, ACTIVE_REQUEST_ADDED, ACTIVE_REQUEST_REMOVED }
+}
@@ -0,0 +1,120 @@
+package com.example.enrichment.service;
+
+import com.example.enrichment.dto.EnrichmentResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// In-process L1 in front of Redis: mapped responses by customerId, bounded by size and TTL, so hot customers
+// skip HGETALL and the CustomerData mapping. Not-found answers are cached as well.
+// Entries are dropped by every write path of EnrichmentService and, for writes made by other instances
+// (or anything else touching customer:* keys, TTL expiry included), by Redis keyspace notifications
+// (see RedisConfig). A notification lost while the subscription is down is covered by the TTL only.
+// A single load racing with an invalidation of its key is removed once it completes (Caffeine blocks the
+// invalidation on the running load); a bulk load is stored only if no invalidation happened meanwhile.
+// Either way a stale read cannot stay cached.
+@Slf4j
+@Component
+public class EnrichmentL1Cache implements MessageListener {
+
+    // @RedisHash("customer"): customer:<id> plus index keys customer:<id>:idx, customer:customerEmail:<email>
+    private static final String KEY_PREFIX = "customer:";
+
+    private final boolean enabled;
+    private final Cache<String, EnrichmentResponse> cache;
+    private final Counter localInvalidations;
+    private final Counter remoteInvalidations;
+    // bumped by every invalidation, bulk loads compare it before storing
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    public EnrichmentL1Cache(@Value("${enrichment.cache.l1.enabled:true}") boolean enabled,
+                             @Value("${enrichment.cache.l1.max-size:50000}") long maxSize,
+                             @Value("${enrichment.cache.l1.ttl:30s}") Duration ttl,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = CaffeineCacheMetrics.monitor(meterRegistry, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .<String, EnrichmentResponse>build(), "enrichment.l1");
+        Gauge.builder("enrichment.l1.hit-ratio", cache, value -> value.stats().hitRate())
+                .description("Share of customer lookups answered from the in-process L1 since start")
+                .register(meterRegistry);
+        this.localInvalidations = invalidationCounter(meterRegistry, "local");
+        this.remoteInvalidations = invalidationCounter(meterRegistry, "keyspace");
+        if (enabled) log.info("Enrichment L1 cache enabled: maxSize={}, ttl={}", maxSize, ttl);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public EnrichmentResponse get(String customerId, Function<String, EnrichmentResponse> loader) {
+        if (!enabled) return loader.apply(customerId);
+        return cache.get(customerId, loader);
+    }
+
+    // loader is given the ids missing from the L1 and has to answer every one of them
+    public Map<String, EnrichmentResponse> getAll(Collection<String> customerIds,
+                                                  Function<Collection<String>, Map<String, EnrichmentResponse>> loader) {
+        if (!enabled) return loader.apply(customerIds);
+        Map<String, EnrichmentResponse> result = new HashMap<>(cache.getAllPresent(customerIds));
+        List<String> missing = customerIds.stream().filter(id -> !result.containsKey(id)).distinct().toList();
+        if (missing.isEmpty()) return result;
+        long epoch = invalidationEpoch.get();
+        Map<String, EnrichmentResponse> loaded = loader.apply(missing);
+        result.putAll(loaded);
+        if (invalidationEpoch.get() == epoch) {
+            cache.putAll(loaded);
+            // an invalidation between the check and putAll: drop what may be stale
+            if (invalidationEpoch.get() != epoch) cache.invalidateAll(loaded.keySet());
+        }
+        return result;
+    }
+
+    // Write paths of this instance: dropped before the response goes out
+    public void invalidate(String customerId) {
+        if (!enabled) return;
+        invalidationEpoch.incrementAndGet();
+        cache.invalidate(customerId);
+        localInvalidations.increment();
+    }
+
+    // Keyspace notification: the channel is __keyspace@<db>__:<key>, the body the command (hset, del, expired...)
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        int keyStart = channel.indexOf(KEY_PREFIX);
+        if (keyStart < 0) return;
+        String id = channel.substring(keyStart + KEY_PREFIX.length());
+        // index keys invalidate their owner (customer:<id>:idx) or nothing (customer:customerEmail:...)
+        int separator = id.indexOf(':');
+        invalidationEpoch.incrementAndGet();
+        cache.invalidate(separator < 0 ? id : id.substring(0, separator));
+        remoteInvalidations.increment();
+    }
+
+    private static Counter invalidationCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("enrichment.l1.invalidations")
+                .description("L1 entries dropped by source: local write or Redis keyspace notification")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+}
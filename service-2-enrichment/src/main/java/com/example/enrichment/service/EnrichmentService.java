@@ -4,36 +4,96 @@ import com.example.enrichment.dto.CustomerRequest;
 import com.example.enrichment.dto.EnrichmentResponse;
 import com.example.enrichment.model.CustomerData;
 import com.example.enrichment.repository.CustomerRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
-// Customer data service with Redis caching
+// Customer data service with Redis caching and an in-process L1 (EnrichmentL1Cache) in front of it.
+// Meters: enrichment.lookup / enrichment.write timers and enrichment.customers{result} (Redis reads, L1 hits
+// excluded), enrichment.batch.size; L1 hits and misses are cache.gets{cache=enrichment.l1}
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class EnrichmentService {
     
     private final CustomerRepository customerRepository;
+    private final CustomerChangeNotifier changeNotifier;
+    private final EnrichmentL1Cache l1Cache;
+    // meters are built once, every tag combination is known up front
+    private final Timer singleLookups;
+    private final Timer batchLookups;
+    private final Timer saves;
+    private final Timer updates;
+    private final Counter customersFound;
+    private final Counter customersNotFound;
+    private final DistributionSummary batchSizes;
+    
+    public EnrichmentService(CustomerRepository customerRepository,
+                             CustomerChangeNotifier changeNotifier,
+                             EnrichmentL1Cache l1Cache,
+                             MeterRegistry meterRegistry) {
+        this.customerRepository = customerRepository;
+        this.changeNotifier = changeNotifier;
+        this.l1Cache = l1Cache;
+        this.singleLookups = timer(meterRegistry, "enrichment.lookup", "single");
+        this.batchLookups = timer(meterRegistry, "enrichment.lookup", "batch");
+        this.saves = timer(meterRegistry, "enrichment.write", "save");
+        this.updates = timer(meterRegistry, "enrichment.write", "update");
+        this.customersFound = customersCounter(meterRegistry, "found");
+        this.customersNotFound = customersCounter(meterRegistry, "not_found");
+        this.batchSizes = DistributionSummary.builder("enrichment.batch.size")
+                .description("Distinct customers per batch request")
+                .register(meterRegistry);
+    }
     
     public EnrichmentResponse getCustomerEnrichment(String customerId) {
+        return l1Cache.get(customerId, this::loadCustomer);
+    }
+    
+    private EnrichmentResponse loadCustomer(String customerId) {
         log.debug("Fetching customer: {}", customerId);
-        return customerRepository.findById(customerId)
-                .map(this::mapToResponse)
-                .orElse(EnrichmentResponse.notFound(customerId));
+        Optional<CustomerData> customer = singleLookups.record(() -> customerRepository.findById(customerId));
+        countCustomers(customer.isPresent() ? 1 : 0, customer.isPresent() ? 0 : 1);
+        return customer.map(this::mapToResponse).orElse(EnrichmentResponse.notFound(customerId));
+    }
+    
+    // L1 first, then one pipelined Redis round trip for the rest; the response keeps request order, duplicates collapsed
+    public List<EnrichmentResponse> getCustomerEnrichmentBatch(List<String> customerIds) {
+        List<String> distinctIds = customerIds.stream().distinct().toList();
+        batchSizes.record(distinctIds.size());
+        Map<String, EnrichmentResponse> responses = l1Cache.getAll(distinctIds, this::loadCustomers);
+        return distinctIds.stream().map(responses::get).toList();
+    }
+    
+    private Map<String, EnrichmentResponse> loadCustomers(Collection<String> customerIds) {
+        log.debug("Fetching {} customers", customerIds.size());
+        Map<String, CustomerData> found = batchLookups.record(() -> customerRepository.findAllByIdPipelined(customerIds));
+        countCustomers(found.size(), customerIds.size() - found.size());
+        Map<String, EnrichmentResponse> responses = new HashMap<>();
+        customerIds.forEach(id -> responses.put(id,
+                found.containsKey(id) ? mapToResponse(found.get(id)) : EnrichmentResponse.notFound(id)));
+        return responses;
     }
     
     public EnrichmentResponse saveCustomer(CustomerRequest request) {
         CustomerData customer = mapToEntity(request);
         customer.setRegisteredAt(LocalDateTime.now());
-        return mapToResponse(customerRepository.save(customer));
+        CustomerData saved = saves.record(() -> customerRepository.save(customer));
+        l1Cache.invalidate(saved.getCustomerId());
+        changeNotifier.customerChanged(saved.getCustomerId(), CustomerChangeNotifier.ChangeType.SAVED);
+        return mapToResponse(saved);
     }
     
     public EnrichmentResponse updateCustomer(String customerId, CustomerRequest request) {
@@ -45,7 +105,10 @@ public class EnrichmentService {
                     c.setRegisteredAt(LocalDateTime.now());
                     return c;
                 });
-        return mapToResponse(customerRepository.save(customer));
+        CustomerData saved = updates.record(() -> customerRepository.save(customer));
+        l1Cache.invalidate(customerId);
+        changeNotifier.customerChanged(customerId, CustomerChangeNotifier.ChangeType.UPDATED);
+        return mapToResponse(saved);
     }
     
     public EnrichmentResponse addActiveRequest(String customerId, CustomerRequest.ActiveRequestDto requestDto) {
@@ -59,7 +122,10 @@ public class EnrichmentService {
                             .status(parseStatus(requestDto.getStatus()))
                             .createdAt(LocalDateTime.now())
                             .build());
-                    return mapToResponse(customerRepository.save(customer));
+                    CustomerData saved = customerRepository.save(customer);
+                    l1Cache.invalidate(customerId);
+                    changeNotifier.customerChanged(customerId, CustomerChangeNotifier.ChangeType.ACTIVE_REQUEST_ADDED);
+                    return mapToResponse(saved);
                 })
                 .orElse(EnrichmentResponse.notFound(customerId));
     }
@@ -70,6 +136,8 @@ public class EnrichmentService {
                     if (customer.getActiveRequests() != null) {
                         customer.getActiveRequests().removeIf(r -> r.getRequestId().equals(requestId));
                         customerRepository.save(customer);
+                        l1Cache.invalidate(customerId);
+                        changeNotifier.customerChanged(customerId, CustomerChangeNotifier.ChangeType.ACTIVE_REQUEST_REMOVED);
                     }
                     return mapToResponse(customer);
                 })
@@ -78,6 +146,8 @@ public class EnrichmentService {
     
     public void deleteCustomer(String customerId) {
         customerRepository.deleteById(customerId);
+        l1Cache.invalidate(customerId);
+        changeNotifier.customerChanged(customerId, CustomerChangeNotifier.ChangeType.DELETED);
     }
     
     public List<EnrichmentResponse> getAllCustomers() {
@@ -92,7 +162,26 @@ public class EnrichmentService {
         return customerRepository.existsById(customerId);
     }
     
-    private EnrichmentResponse mapToResponse(CustomerData customer) {
+    private void countCustomers(int found, int notFound) {
+        if (found > 0) customersFound.increment(found);
+        if (notFound > 0) customersNotFound.increment(notFound);
+    }
+    
+    private static Timer timer(MeterRegistry meterRegistry, String name, String operation) {
+        return Timer.builder(name)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+    
+    private static Counter customersCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("enrichment.customers")
+                .description("Looked up customers by result")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+    
+    // package-private for moderation-benchmarks
+    EnrichmentResponse mapToResponse(CustomerData customer) {
         List<EnrichmentResponse.ActiveRequest> activeRequests = null;
         
         if (customer.getActiveRequests() != null) {
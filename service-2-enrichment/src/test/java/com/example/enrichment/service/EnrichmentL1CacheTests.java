@@ -0,0 +1,86 @@
+package com.example.enrichment.service;
+
+import com.example.enrichment.dto.EnrichmentResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit тесты для L1 кэша данных клиентов.
+ */
+class EnrichmentL1CacheTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EnrichmentL1Cache cache = new EnrichmentL1Cache(true, 1000, Duration.ofMinutes(1), meterRegistry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    @DisplayName("Повторный запрос клиента обслуживается из L1, запись сбрасывает запись кэша")
+    void shouldServeFromL1UntilLocalWrite() {
+        assertEquals("CUST-1", cache.get("CUST-1", this::load).getCustomerId());
+        cache.get("CUST-1", this::load);
+        assertEquals(1, loads.get());
+
+        cache.invalidate("CUST-1");
+        cache.get("CUST-1", this::load);
+        assertEquals(2, loads.get());
+        assertEquals(1.0 / 3, meterRegistry.get("enrichment.l1.hit-ratio").gauge().value(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Keyspace-уведомление Redis сбрасывает клиента, индексные ключи - его владельца")
+    void shouldInvalidateOnKeyspaceNotification() {
+        cache.get("CUST-1", this::load);
+        cache.get("CUST-2", this::load);
+
+        cache.onMessage(keyspace("customer:CUST-1", "hset"), null);
+        cache.onMessage(keyspace("customer:CUST-2:idx", "del"), null);
+        cache.onMessage(keyspace("customer:customerEmail:a@example.com", "sadd"), null);
+        cache.get("CUST-1", this::load);
+        cache.get("CUST-2", this::load);
+
+        assertEquals(4, loads.get());
+        assertEquals(3, meterRegistry.get("enrichment.l1.invalidations").tag("source", "keyspace").counter().count());
+    }
+
+    @Test
+    @DisplayName("Пакетный запрос загружает только отсутствующих клиентов и не кэширует данные, устаревшие во время загрузки")
+    void shouldLoadMissingAndSkipStaleBatch() {
+        cache.get("CUST-1", this::load);
+
+        Map<String, EnrichmentResponse> result = cache.getAll(List.of("CUST-1", "CUST-2", "CUST-3"), ids -> {
+            assertEquals(List.of("CUST-2", "CUST-3"), ids);
+            cache.invalidate("CUST-3");
+            Map<String, EnrichmentResponse> loaded = new HashMap<>();
+            ids.forEach(id -> loaded.put(id, load(id)));
+            return loaded;
+        });
+
+        assertEquals(3, result.size());
+        cache.getAll(List.of("CUST-2", "CUST-3"), ids -> {
+            assertEquals(List.of("CUST-2", "CUST-3"), ids);
+            return Map.of("CUST-2", load("CUST-2"), "CUST-3", load("CUST-3"));
+        });
+        cache.getAll(List.of("CUST-2", "CUST-3"), ids -> fail("loaded again: " + ids));
+    }
+
+    private EnrichmentResponse load(String customerId) {
+        loads.incrementAndGet();
+        return EnrichmentResponse.builder().customerId(customerId).dataAvailable(true).build();
+    }
+
+    private static DefaultMessage keyspace(String key, String command) {
+        return new DefaultMessage(("__keyspace@0__:" + key).getBytes(StandardCharsets.UTF_8),
+                command.getBytes(StandardCharsets.UTF_8));
+    }
+}